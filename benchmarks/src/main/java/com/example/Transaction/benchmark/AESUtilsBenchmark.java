@@ -0,0 +1,87 @@
+package com.example.Transaction.benchmark;
+
+import com.example.Transaction.util.AESUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AESUtilsBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"16", "256", "4096"})
+    private int payloadSize;
+
+    private BenchmarkContext context;
+    private AESUtils aesUtils;
+    private String plainText;
+    private String encrypted;
+    private List<String> encryptedPage;
+
+    @Setup
+    public void setUp() {
+        context = new BenchmarkContext();
+        aesUtils = context.getBean(AESUtils.class);
+        plainText = BenchmarkContext.payload(payloadSize);
+        encrypted = aesUtils.encryptForDB(plainText);
+        encryptedPage = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            encryptedPage.add(aesUtils.encryptForDB(plainText));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String encrypt() {
+        return aesUtils.encryptForDB(plainText);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String encryptConcurrent() {
+        return aesUtils.encryptForDB(plainText);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String decrypt() {
+        return aesUtils.decryptFromDB(encrypted);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String decryptConcurrent() {
+        return aesUtils.decryptFromDB(encrypted);
+    }
+
+    /**
+     * Một trang lịch sử: từng giá trị một (lấy / trả cipher mỗi lần) so với decryptAll
+     */
+    @Benchmark
+    @Threads(1)
+    public List<String> decryptPageOneByOne() {
+        List<String> plainTexts = new ArrayList<>(PAGE_SIZE);
+        for (String value : encryptedPage) {
+            plainTexts.add(aesUtils.decryptFromDB(value));
+        }
+        return plainTexts;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> decryptPageBulk() {
+        return aesUtils.decryptAll(encryptedPage);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.Transaction.benchmark;
+
+import com.example.Transaction.config.I18nConfig;
+import com.example.Transaction.config.Translator;
+import com.example.Transaction.mapper.TransactionMapper;
+import com.example.Transaction.util.AESUtils;
+import com.example.Transaction.util.CryptoPool;
+import com.example.Transaction.util.RSAKeyProvider;
+import com.example.Transaction.util.RSAUtils;
+import com.example.Transaction.util.SensitiveDataMasker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Spring context tối thiểu cho benchmark, chỉ gồm các bean crypto / masking / mapping
+ * Chạy trên keystore sinh riêng (BenchmarkKeystore)
+ */
+public final class BenchmarkContext implements AutoCloseable {
+    private final BenchmarkKeystore keystore;
+    private final AnnotationConfigApplicationContext context;
+
+    public BenchmarkContext() {
+        keystore = new BenchmarkKeystore();
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("benchmark", keystore.properties()));
+        context.register(I18nConfig.class, Translator.class, CryptoPool.class, RSAKeyProvider.class,
+                RSAUtils.class, AESUtils.class, SensitiveDataMasker.class, TransactionMapper.class);
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.refresh();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        keystore.close();
+    }
+
+    /**
+     * Chuỗi ASCII độ dài cố định, tạo trước khi đo
+     */
+    public static String payload(int size) {
+        StringBuilder sb = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            sb.append((char) ('0' + i % 10));
+        }
+        return sb.toString();
+    }
+}
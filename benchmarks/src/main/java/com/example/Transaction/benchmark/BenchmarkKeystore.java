@@ -0,0 +1,83 @@
+package com.example.Transaction.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Keystore RSA-2048 sinh mới bằng keytool vào thư mục tạm, không dùng keystore.p12 production
+ */
+public final class BenchmarkKeystore implements AutoCloseable {
+    public static final String KEY_ALIAS = "benchmark-key";
+    public static final String PASSWORD = "benchmark-password";
+    public static final String AES_MASTER_KEY = "benchmark-master-key";
+    public static final String BLIND_INDEX_KEY = "benchmark-blind-index-key";
+    private static final int RSA_KEY_SIZE = 2048;
+
+    private final Path dir;
+    private final Path keystore;
+
+    public BenchmarkKeystore() {
+        try {
+            dir = Files.createTempDirectory("benchmark-keystore");
+            keystore = generate(dir.resolve("benchmark.p12"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to prepare benchmark keystore", e);
+        }
+    }
+
+    /**
+     * Property cho AESUtils / BlindIndexUtils / RSAKeyProvider trỏ vào keystore này
+     */
+    public Map<String, Object> properties() {
+        return Map.of(
+                "encryption.aes.master.key", AES_MASTER_KEY,
+                "encryption.aes.key-id", "1",
+                "encryption.aes.legacy-cbc-read", "false",
+                "encryption.aes.legacy-key-id", "1",
+                "encryption.blind-index.key", BLIND_INDEX_KEY,
+                "rsa.keystore.path", keystore.toString(),
+                "rsa.keystore.password", PASSWORD,
+                "rsa.key.alias", KEY_ALIAS
+        );
+    }
+
+    @Override
+    public void close() {
+        try (var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // thư mục tạm, bỏ qua
+        }
+    }
+
+    private static Path generate(Path keystore) throws IOException {
+        String keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool").toString();
+        Process process = new ProcessBuilder(keytool,
+                "-genkeypair",
+                "-alias", KEY_ALIAS,
+                "-keyalg", "RSA",
+                "-keysize", String.valueOf(RSA_KEY_SIZE),
+                "-validity", "1",
+                "-dname", "CN=benchmark",
+                "-storetype", "PKCS12",
+                "-keystore", keystore.toString(),
+                "-storepass", PASSWORD,
+                "-keypass", PASSWORD)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("keytool exited with " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating keystore", e);
+        }
+        return keystore;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.Transaction.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point của benchmarks.jar
+ * - Nhận tham số dòng lệnh JMH như bình thường
+ * - Luôn bật GC profiler để có gc.alloc.rate.norm (bytes/op)
+ * - Ghi kết quả JSON để so sánh giữa các release
+ */
+public final class BenchmarkRunner {
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT_FILE)
+                .build();
+        new Runner(options).run();
+    }
+}
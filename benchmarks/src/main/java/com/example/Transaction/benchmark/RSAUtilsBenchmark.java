@@ -0,0 +1,76 @@
+package com.example.Transaction.benchmark;
+
+import com.example.Transaction.util.RSAUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RSA-2048 OAEP SHA-256 chỉ mã hóa được tối đa 190 bytes, nên payload lớn nhất là 190
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RSAUtilsBenchmark {
+    @Param({"16", "64", "190"})
+    private int payloadSize;
+
+    private BenchmarkContext context;
+    private RSAUtils rsaUtils;
+    private String plainText;
+    private String encrypted;
+    private String signature;
+
+    @Setup
+    public void setUp() {
+        context = new BenchmarkContext();
+        rsaUtils = context.getBean(RSAUtils.class);
+        plainText = BenchmarkContext.payload(payloadSize);
+        encrypted = rsaUtils.encrypt(plainText);
+        signature = rsaUtils.sign(plainText);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String decrypt() {
+        return rsaUtils.decrypt(encrypted);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String decryptConcurrent() {
+        return rsaUtils.decrypt(encrypted);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String encrypt() {
+        return rsaUtils.encrypt(plainText);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String sign() {
+        return rsaUtils.sign(plainText);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String signConcurrent() {
+        return rsaUtils.sign(plainText);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean verify() {
+        return rsaUtils.verify(plainText, signature);
+    }
+}
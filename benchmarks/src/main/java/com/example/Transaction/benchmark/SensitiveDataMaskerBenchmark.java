@@ -0,0 +1,68 @@
+package com.example.Transaction.benchmark;
+
+import com.example.Transaction.util.SensitiveDataMasker;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * logSafely đo cả chi phí mask lẫn logger; benchmark chạy với cấu hình log mặc định của logback
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensitiveDataMaskerBenchmark {
+    @Param({"4", "16", "256"})
+    private int payloadSize;
+
+    private BenchmarkContext context;
+    private SensitiveDataMasker masker;
+    private String value;
+    private BigDecimal amount;
+    private LocalDateTime time;
+
+    @Setup
+    public void setUp() {
+        context = new BenchmarkContext();
+        masker = context.getBean(SensitiveDataMasker.class);
+        value = BenchmarkContext.payload(payloadSize);
+        amount = new BigDecimal("1250.00");
+        time = LocalDateTime.of(2026, 1, 1, 0, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String mask() {
+        return masker.mask(value);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String maskConcurrent() {
+        return masker.mask(value);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void logSafely() {
+        masker.logSafely("Processing TxID={}, From={}, To={}, Amount={}, Time={}",
+                value, value, value, amount, time);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void logSafelyConcurrent() {
+        masker.logSafely("Processing TxID={}, From={}, To={}, Amount={}, Time={}",
+                value, value, value, amount, time);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.Transaction.benchmark;
+
+import com.example.Transaction.dto.response.TransactionHistoryResponse;
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.mapper.TransactionMapper;
+import com.example.Transaction.util.AESUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionMapperBenchmark {
+    @Param({"12", "34", "256"})
+    private int accountSize;
+
+    private BenchmarkContext context;
+    private TransactionMapper mapper;
+    private TransactionHistory history;
+
+    @Setup
+    public void setUp() {
+        context = new BenchmarkContext();
+        mapper = context.getBean(TransactionMapper.class);
+        AESUtils aesUtils = context.getBean(AESUtils.class);
+        history = TransactionHistory.builder()
+                .id(1L)
+                .transactionId("TX-BENCHMARK")
+                .account(aesUtils.encryptForDB(BenchmarkContext.payload(accountSize)))
+                .inDebt(new BigDecimal("1250.00"))
+                .have(BigDecimal.ZERO)
+                .time(LocalDateTime.of(2026, 1, 1, 0, 0))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TransactionHistoryResponse toHistoryResponse() {
+        return mapper.toHistoryResponse(history);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public TransactionHistoryResponse toHistoryResponseConcurrent() {
+        return mapper.toHistoryResponse(history);
+    }
+}
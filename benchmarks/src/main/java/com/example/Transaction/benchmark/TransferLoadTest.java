@@ -0,0 +1,329 @@
+package com.example.Transaction.benchmark;
+
+import com.example.Transaction.TransactionApplication;
+import com.example.Transaction.dto.request.TransactionRequest;
+import com.example.Transaction.util.RSAUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test end-to-end: HTTP -> TransactionController -> TransactionService -> TransactionHistoryRepository
+ * - Boot app trên H2 in-memory với keystore sinh riêng (BenchmarkKeystore)
+ * - Account và amount RSA mã hóa sẵn trước khi đo (pool loadtest.payloads phần tử, dùng vòng lại)
+ * - Mỗi request một transactionId mới nên luôn đo đường ghi, không rơi vào đường idempotent (trả kết quả cũ);
+ *   transactionId mã hóa bằng public key (rẻ) ngay trước khi gửi, ngoài khoảng đo latency
+ * - Admission (rate limit theo client, in-flight) được nới ra: mọi client đều từ 127.0.0.1 nên với cấu hình
+ *   mặc định lần chạy chỉ đo 429
+ * - closed: mỗi client gửi request kế tiếp khi request trước xong
+ * - open: gửi theo rate cố định, latency tính từ thời điểm lẽ ra phải gửi (tránh coordinated omission)
+ * - Tham số là Spring property (--loadtest.*), mọi property của app cũng override được qua dòng lệnh
+ * - App và load generator chạy chung JVM nên CPU / GC bao gồm cả phía client
+ */
+public final class TransferLoadTest {
+    private static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    enum Mode { CLOSED, OPEN }
+
+    record Options(Mode mode, int clients, int rate, int warmupSeconds, int durationSeconds,
+                   int payloads, Path report) {
+        static Options from(Environment env) {
+            return new Options(
+                    Mode.valueOf(env.getProperty("loadtest.mode", "closed").toUpperCase(Locale.ROOT)),
+                    env.getProperty("loadtest.clients", Integer.class, 16),
+                    env.getProperty("loadtest.rate", Integer.class, 1000),
+                    env.getProperty("loadtest.warmup", Integer.class, 10),
+                    env.getProperty("loadtest.duration", Integer.class, 30),
+                    env.getProperty("loadtest.payloads", Integer.class, 1000),
+                    Paths.get(env.getProperty("loadtest.report", "load-test-report.json"))
+            );
+        }
+    }
+
+    record Report(String mode, int clients, Integer targetRate, double elapsedSeconds,
+                  long requests, long errors, double throughput,
+                  double p50Millis, double p99Millis, double p999Millis, double maxMillis,
+                  double cpuUtilization, long gcCount, long gcTimeMillis) {
+    }
+
+    /**
+     * Các field RSA mã hóa sẵn của một payload, transactionId sinh riêng cho từng request
+     */
+    record Payload(String sourceAccount, String destAccount, String amount) {
+    }
+
+    private final Options options;
+    private final RSAUtils rsaUtils;
+    private final ObjectMapper objectMapper;
+    private final URI uri;
+    private final Payload[] payloads;
+    private final AtomicLong sequence = new AtomicLong();
+    private final HttpClient httpClient;
+    private final ExecutorService clientPool;
+
+    private ConcurrentHistogram histogram;
+    private LongAdder succeeded;
+    private LongAdder failed;
+
+    private TransferLoadTest(Options options, RSAUtils rsaUtils, ObjectMapper objectMapper, URI uri,
+                             Payload[] payloads) {
+        this.options = options;
+        this.rsaUtils = rsaUtils;
+        this.objectMapper = objectMapper;
+        this.uri = uri;
+        this.payloads = payloads;
+        this.clientPool = Executors.newFixedThreadPool(options.clients());
+        // HttpClient dùng executor riêng: client closed-mode block trong send(), dùng chung pool thì không còn
+        // thread nào hoàn thành response
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (BenchmarkKeystore keystore = new BenchmarkKeystore();
+             ConfigurableApplicationContext app = new SpringApplicationBuilder(TransactionApplication.class)
+                     .environment(environment(keystore))
+                     .run(args)) {
+            Options options = Options.from(app.getEnvironment());
+            URI uri = URI.create("http://localhost:" + app.getEnvironment().getProperty("local.server.port")
+                    + app.getEnvironment().getProperty("api.prefix") + "/transactions/transfer");
+            RSAUtils rsaUtils = app.getBean(RSAUtils.class);
+            Payload[] payloads = encryptPayloads(rsaUtils, options.payloads());
+
+            TransferLoadTest loadTest = new TransferLoadTest(options, rsaUtils, app.getBean(ObjectMapper.class),
+                    uri, payloads);
+            try {
+                loadTest.run(options.warmupSeconds());
+                Report report = loadTest.run(options.durationSeconds());
+                print(report);
+                new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                        .writeValue(options.report().toFile(), report);
+            } finally {
+                loadTest.clientPool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Property của load test đứng trước application.yaml (builder.properties() chỉ là default, bị yaml đè),
+     * tham số dòng lệnh vẫn đè được vì Spring thêm nó lên đầu
+     */
+    private static StandardEnvironment environment(BenchmarkKeystore keystore) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("loadtest", appProperties(keystore)));
+        return environment;
+    }
+
+    private static Map<String, Object> appProperties(BenchmarkKeystore keystore) {
+        Map<String, Object> properties = new HashMap<>(keystore.properties());
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        // Không để rate limit / in-flight cap quyết định throughput
+        properties.put("admission.rate-limit.permits-per-second", 1_000_000);
+        properties.put("admission.rate-limit.burst", 1_000_000);
+        properties.put("admission.max-in-flight", 1_000_000);
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.put("logging.level.com.example.Transaction", "WARN");
+        return properties;
+    }
+
+    /**
+     * Payload giống client thật: mỗi field RSA mã hóa riêng, account 12 chữ số, amount có 2 số lẻ
+     */
+    private static Payload[] encryptPayloads(RSAUtils rsaUtils, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Payload[] payloads = new Payload[count];
+        for (int i = 0; i < count; i++) {
+            payloads[i] = new Payload(
+                    rsaUtils.encrypt(String.valueOf(random.nextLong(100_000_000_000L, 1_000_000_000_000L))),
+                    rsaUtils.encrypt(String.valueOf(random.nextLong(100_000_000_000L, 1_000_000_000_000L))),
+                    rsaUtils.encrypt(random.nextInt(1, 1_000_000) + "." + random.nextInt(10, 100)));
+        }
+        return payloads;
+    }
+
+    /**
+     * Request thứ i dùng payload i % pool và một transactionId chưa từng gửi (kể cả qua lượt warmup)
+     */
+    private HttpRequest nextRequest(long i) {
+        Payload payload = payloads[(int) (i % payloads.length)];
+        TransactionRequest request = TransactionRequest.builder()
+                .transactionId(rsaUtils.encrypt("LT-" + sequence.incrementAndGet()))
+                .sourceAccount(payload.sourceAccount())
+                .destAccount(payload.destAccount())
+                .amount(payload.amount())
+                .build();
+        try {
+            return HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(request)))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Report run(int seconds) throws InterruptedException {
+        histogram = new ConcurrentHistogram(MAX_LATENCY_NANOS, SIGNIFICANT_DIGITS);
+        succeeded = new LongAdder();
+        failed = new LongAdder();
+
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuBefore = os.getProcessCpuTime();
+        long[] gcBefore = gcTotals();
+        long start = System.nanoTime();
+
+        if (options.mode() == Mode.CLOSED) {
+            runClosed(start + TimeUnit.SECONDS.toNanos(seconds));
+        } else {
+            runOpen(start, start + TimeUnit.SECONDS.toNanos(seconds));
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long cpu = os.getProcessCpuTime() - cpuBefore;
+        long[] gcAfter = gcTotals();
+
+        Histogram snapshot = histogram.copy();
+        double elapsedSeconds = elapsed / 1e9;
+        return new Report(
+                options.mode().name().toLowerCase(Locale.ROOT),
+                options.clients(),
+                options.mode() == Mode.OPEN ? options.rate() : null,
+                elapsedSeconds,
+                succeeded.sum() + failed.sum(),
+                failed.sum(),
+                succeeded.sum() / elapsedSeconds,
+                millis(snapshot.getValueAtPercentile(50)),
+                millis(snapshot.getValueAtPercentile(99)),
+                millis(snapshot.getValueAtPercentile(99.9)),
+                millis(snapshot.getMaxValue()),
+                (double) cpu / elapsed / os.getAvailableProcessors(),
+                gcAfter[0] - gcBefore[0],
+                gcAfter[1] - gcBefore[1]
+        );
+    }
+
+    private void runClosed(long deadline) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(options.clients());
+        for (int c = 0; c < options.clients(); c++) {
+            int first = c;
+            clientPool.execute(() -> {
+                try {
+                    for (long i = first; System.nanoTime() < deadline; i += options.clients()) {
+                        HttpRequest request = nextRequest(i);
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                            record(start, response.statusCode() == 200);
+                        } catch (IOException e) {
+                            record(start, false);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void runOpen(long start, long deadline) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        AtomicLong inFlight = new AtomicLong();
+        for (long k = 0; ; k++) {
+            long intended = start + k * interval;
+            if (intended >= deadline) break;
+            // Chuẩn bị trước khi chờ tới lượt gửi; nếu chậm hơn interval thì phần trễ tính vào latency
+            HttpRequest request = nextRequest(k);
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            inFlight.incrementAndGet();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        record(intended, error == null && response.statusCode() == 200);
+                        inFlight.decrementAndGet();
+                    });
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void record(long start, boolean ok) {
+        histogram.recordValue(Math.min(System.nanoTime() - start, MAX_LATENCY_NANOS));
+        if (ok) {
+            succeeded.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return new long[]{count, time};
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void print(Report r) {
+        System.out.printf(Locale.ROOT, "%nmode=%s clients=%d%s elapsed=%.1fs%n",
+                r.mode(), r.clients(), r.targetRate() == null ? "" : " rate=" + r.targetRate(), r.elapsedSeconds());
+        System.out.printf(Locale.ROOT, "requests=%d errors=%d throughput=%.1f ops/s%n",
+                r.requests(), r.errors(), r.throughput());
+        System.out.printf(Locale.ROOT, "latency ms: p50=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                r.p50Millis(), r.p99Millis(), r.p999Millis(), r.maxMillis());
+        System.out.printf(Locale.ROOT, "cpu=%.1f%% gc.count=%d gc.time=%dms%n",
+                r.cpuUtilization() * 100, r.gcCount(), r.gcTimeMillis());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.Transaction.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor được đo qua Micrometer: executor.queued (độ sâu queue), executor.idle (thời gian chờ trong queue),
+ * executor (thời gian chạy), tag name
+ */
+@Configuration
+public class ExecutorConfig {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Executor cho công việc CPU-bound (RSA / AES), số thread bằng số core
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService cryptoExecutor(MeterRegistry registry) {
+        ExecutorService executor = Executors.newFixedThreadPool(CORES, new CustomizableThreadFactory("crypto-"));
+        return ExecutorServiceMetrics.monitor(registry, executor, "crypto");
+    }
+
+    /**
+     * Executor cho công việc chờ DB, số thread bằng connection pool để không thread nào chờ connection
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService dbExecutor(MeterRegistry registry,
+                                      @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("db-"));
+        return ExecutorServiceMetrics.monitor(registry, executor, "db");
+    }
+}
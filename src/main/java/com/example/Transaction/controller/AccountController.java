@@ -0,0 +1,44 @@
+package com.example.Transaction.controller;
+
+import com.example.Transaction.dto.request.AccountBalanceRequest;
+import com.example.Transaction.dto.response.AccountBalanceResponse;
+import com.example.Transaction.dto.response.ApiRes;
+import com.example.Transaction.service.IAccountBalanceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("${api.prefix}/accounts")
+@Tag(name = "Account", description = "Account APIs")
+public class AccountController {
+    private final IAccountBalanceService accountBalanceService;
+
+    /**
+     * API số dư theo account
+     * Account mã hóa RSA, số dư đọc từ projection account_balance
+     */
+    @Operation(summary = "Số dư account")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Số dư account",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = AccountBalanceResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Request không hợp lệ",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/balance")
+    public ResponseEntity<ApiRes<AccountBalanceResponse>> getBalance(@Valid @RequestBody AccountBalanceRequest request) {
+        AccountBalanceResponse response = accountBalanceService.getBalance(request);
+        return ResponseEntity.ok(ApiRes.success(response));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.Transaction.controller;
+
+import com.example.Transaction.dto.response.TransferEventResponse;
+import com.example.Transaction.service.IChangeFeedService;
+import com.example.Transaction.service.IChangeFeedService.Format;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("${api.prefix}/feed")
+@Tag(name = "Feed", description = "Change feed APIs")
+public class FeedController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final IChangeFeedService changeFeedService;
+
+    /**
+     * API tail giao dịch mới dạng NDJSON (mỗi dòng một TransferEventResponse), account giữ bản AES
+     * Resume bằng after = sequence cuối đã nhận; dòng trống là heartbeat
+     */
+    @Operation(summary = "Change feed giao dịch (NDJSON stream)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream giao dịch theo sequence",
+                    content = @Content(mediaType = NDJSON,
+                            schema = @Schema(implementation = TransferEventResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Quá số consumer cho phép hoặc change feed đang tắt (outbox.enabled)",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @GetMapping(value = "/transfers", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> tailNdjson(@RequestParam(defaultValue = "0") long after) {
+        StreamingResponseBody body = out -> changeFeedService.tail(Math.max(after, 0), Format.NDJSON, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    /**
+     * API tail giao dịch mới dạng Server-Sent Events, id của event là sequence
+     * Resume bằng header Last-Event-ID (EventSource tự gửi khi kết nối lại) hoặc after
+     */
+    @Operation(summary = "Change feed giao dịch (Server-Sent Events)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream giao dịch theo sequence",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = TransferEventResponse.class))),
+            @ApiResponse(responseCode = "503", description = "Quá số consumer cho phép hoặc change feed đang tắt (outbox.enabled)",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @GetMapping(value = "/transfers", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> tailSse(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long from = Math.max(lastEventId == null ? after : lastEventId, 0);
+        StreamingResponseBody body = out -> changeFeedService.tail(from, Format.SSE, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header("Cache-Control", "no-cache")
+                .body(body);
+    }
+}
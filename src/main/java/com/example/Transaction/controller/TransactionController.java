@@ -1,23 +1,37 @@
 package com.example.Transaction.controller;
 
+import com.example.Transaction.dto.request.ReceiptVerifyRequest;
+import com.example.Transaction.dto.request.TransactionBatchRequest;
+import com.example.Transaction.dto.request.TransactionEnvelopeRequest;
+import com.example.Transaction.dto.request.TransactionHistoryRequest;
 import com.example.Transaction.dto.request.TransactionRequest;
+import com.example.Transaction.dto.request.TransactionStatusRequest;
 import com.example.Transaction.dto.response.ApiRes;
+import com.example.Transaction.dto.response.TransactionHistoryPageResponse;
 import com.example.Transaction.dto.response.TransactionHistoryResponse;
 import com.example.Transaction.dto.response.TransactionResponse;
+import com.example.Transaction.dto.response.TransferResultResponse;
 import com.example.Transaction.service.ITransactionService;
+import com.example.Transaction.util.ReceiptSigner;
+import com.example.Transaction.util.TransferAdmission;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -25,11 +39,17 @@ import java.util.List;
 @RequestMapping("${api.prefix}/transactions")
 @Tag(name = "Transaction", description = "Transaction APIs")
 public class TransactionController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ITransactionService transactionService;
+    private final TransferAdmission admission;
+    private final ReceiptSigner receiptSigner;
 
     /**
      * API xử lý giao dịch chuyển khoản
      * Tất cả parameters trong request đã được mã hóa RSA
+     * Các API chuyển khoản đi qua admission (rate limit theo client, kiểm tra ciphertext, giới hạn in-flight) trước khi giải mã
+     * Response giao dịch kèm receipt (ReceiptSigner), chờ ký sau khi đã trả permit của admission
      */
     @Operation(summary = "Thực hiện giao dịch chuyển khoản")
     @ApiResponses(value = {
@@ -38,12 +58,188 @@ public class TransactionController {
                             schema = @Schema(implementation = TransactionResponse.class))),
             @ApiResponse(responseCode = "400", description = "Giao dịch thất bại do request không hợp lệ",
                     content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "429", description = "Client vượt rate limit",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "503", description = "Hệ thống quá tải, thử lại sau",
+                    content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "500", description = "Lỗi hệ thống, không thể xử lý giao dịch",
                     content = @Content(mediaType = "application/json"))
     })
     @PostMapping("/transfer")
-    public ResponseEntity<ApiRes<TransactionResponse>> processTransfer(@Valid @RequestBody TransactionRequest request) {
-        TransactionResponse response = transactionService.processTransfer(request);
+    public ResponseEntity<ApiRes<TransactionResponse>> processTransfer(@Valid @RequestBody TransactionRequest request,
+                                                                       HttpServletRequest httpRequest) {
+        TransactionResponse response;
+        try (TransferAdmission.Permit permit = admission.admit(httpRequest.getRemoteAddr(), request)) {
+            response = transactionService.processTransfer(request);
+        }
+        return ResponseEntity.ok(ApiRes.signed(response, receiptSigner.sign(response).join()));
+    }
+
+    /**
+     * API chuyển khoản bất đồng bộ, cùng request / response như /transfer
+     * Thread của Tomcat trả về ngay: giải mã chạy trên executor crypto, ghi DB trên executor DB
+     * Executor quá tải thì trả 503 ngay, client thử lại sau
+     */
+    @Operation(summary = "Thực hiện giao dịch chuyển khoản (xử lý bất đồng bộ)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Giao dịch thành công",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TransactionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Giao dịch thất bại do request không hợp lệ",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "429", description = "Client vượt rate limit",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "503", description = "Hệ thống quá tải, thử lại sau",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Lỗi hệ thống, không thể xử lý giao dịch",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/transfer/async")
+    public CompletableFuture<ResponseEntity<ApiRes<TransactionResponse>>> processTransferAsync(
+            @Valid @RequestBody TransactionRequest request, HttpServletRequest httpRequest) {
+        TransferAdmission.Permit permit = admission.admit(httpRequest.getRemoteAddr(), request);
+        return transactionService.submitTransfer(request)
+                .whenComplete((response, e) -> permit.close())
+                .thenCompose(response -> receiptSigner.sign(response)
+                        .thenApply(receipt -> ResponseEntity.ok(ApiRes.signed(response, receipt))));
+    }
+
+    /**
+     * API chuyển khoản dạng envelope (Content-Type: application/vnd.transaction.envelope+json)
+     * Session key AES mã hóa RSA, toàn bộ field nằm trong một payload AES-GCM
+     */
+    @Operation(summary = "Thực hiện giao dịch chuyển khoản (envelope RSA + AES-GCM)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Giao dịch thành công",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TransactionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Giao dịch thất bại do request không hợp lệ",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "429", description = "Client vượt rate limit",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "503", description = "Hệ thống quá tải, thử lại sau",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Lỗi hệ thống, không thể xử lý giao dịch",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping(value = "/transfer", consumes = TransactionEnvelopeRequest.MEDIA_TYPE)
+    public ResponseEntity<ApiRes<TransactionResponse>> processEnvelopeTransfer(
+            @Valid @RequestBody TransactionEnvelopeRequest request, HttpServletRequest httpRequest) {
+        TransactionResponse response;
+        try (TransferAdmission.Permit permit = admission.admit(httpRequest.getRemoteAddr(), request)) {
+            response = transactionService.processTransfer(request);
+        }
+        return ResponseEntity.ok(ApiRes.signed(response, receiptSigner.sign(response).join()));
+    }
+
+    /**
+     * API chuyển khoản theo batch
+     * Trả kết quả từng giao dịch, một giao dịch lỗi không rollback các giao dịch còn lại
+     */
+    @Operation(summary = "Thực hiện nhiều giao dịch chuyển khoản trong một request")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch đã xử lý, xem kết quả từng giao dịch",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "400", description = "Batch không hợp lệ",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "429", description = "Client vượt rate limit",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "503", description = "Hệ thống quá tải, thử lại sau",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<ApiRes<List<TransferResultResponse>>> processTransfers(
+            @Valid @RequestBody TransactionBatchRequest request, HttpServletRequest httpRequest) {
+        List<TransferResultResponse> response;
+        try (TransferAdmission.Permit permit = admission.admit(httpRequest.getRemoteAddr(), request.getTransactions())) {
+            response = transactionService.processTransfers(request.getTransactions());
+        }
+        // Các giao dịch thành công được ký chung batch, receipt nằm trong từng kết quả
+        List<CompletableFuture<Void>> receipts = new ArrayList<>(response.size());
+        for (TransferResultResponse result : response) {
+            if (result.isSuccess()) {
+                receipts.add(receiptSigner.sign(result.getData()).thenAccept(result::setReceipt));
+            }
+        }
+        CompletableFuture.allOf(receipts.toArray(new CompletableFuture[0])).join();
+        return ResponseEntity.ok(ApiRes.success(response));
+    }
+
+    /**
+     * API tra cứu giao dịch theo transactionId (mã hóa RSA)
+     * Đọc qua cache, poll lặp lại cùng một transactionId không đọc DB
+     * Kèm receipt mới, dùng để lấy lại biên nhận khi response chuyển khoản không có receipt
+     */
+    @Operation(summary = "Tra cứu giao dịch theo transactionId")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Giao dịch đã ghi",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TransactionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Request không hợp lệ",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "404", description = "Không tìm thấy giao dịch",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/status")
+    public ResponseEntity<ApiRes<TransactionResponse>> getTransaction(
+            @Valid @RequestBody TransactionStatusRequest request) {
+        TransactionResponse response = transactionService.getTransaction(request);
+        return ResponseEntity.ok(ApiRes.signed(response, receiptSigner.sign(response).join()));
+    }
+
+    /**
+     * API kiểm tra receipt: data và receipt đúng như nhận được từ API giao dịch
+     * Kiểm tra proof tới root và chữ ký RSA của root; client có public key có thể tự kiểm tra theo cùng cách
+     */
+    @Operation(summary = "Kiểm tra biên nhận giao dịch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "true nếu receipt hợp lệ cho data",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "400", description = "Request không hợp lệ",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/receipt/verify")
+    public ResponseEntity<ApiRes<Boolean>> verifyReceipt(@Valid @RequestBody ReceiptVerifyRequest request) {
+        boolean valid = receiptSigner.verify(request.getData(), request.getReceipt());
+        return ResponseEntity.ok(ApiRes.success(valid));
+    }
+
+    /**
+     * API lịch sử giao dịch theo account, phân trang bằng cursor
+     * Account mã hóa RSA, khoảng thời gian [from, to)
+     */
+    @Operation(summary = "Lịch sử giao dịch theo account (keyset pagination)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trang lịch sử giao dịch",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = TransactionHistoryPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Request hoặc cursor không hợp lệ",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/history")
+    public ResponseEntity<ApiRes<TransactionHistoryPageResponse>> getHistory(
+            @Valid @RequestBody TransactionHistoryRequest request) {
+        TransactionHistoryPageResponse response = transactionService.getHistory(request);
         return ResponseEntity.ok(ApiRes.success(response));
     }
+
+    /**
+     * API xuất toàn bộ lịch sử giao dịch theo account dạng NDJSON (mỗi dòng một TransactionHistoryResponse)
+     * Dữ liệu được stream, không giới hạn số dòng; cursor và size bị bỏ qua
+     */
+    @Operation(summary = "Xuất lịch sử giao dịch theo account (NDJSON stream)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream lịch sử giao dịch",
+                    content = @Content(mediaType = NDJSON,
+                            schema = @Schema(implementation = TransactionHistoryResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Request không hợp lệ",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping(value = "/history/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportHistory(@Valid @RequestBody TransactionHistoryRequest request) {
+        StreamingResponseBody body = out -> transactionService.exportHistory(request, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
 }
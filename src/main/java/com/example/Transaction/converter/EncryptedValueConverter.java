@@ -0,0 +1,48 @@
+package com.example.Transaction.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Lưu giá trị AES (Base64 từ AESUtils.encryptForDB) dạng byte thô trong cột VARBINARY
+ * - Format cột: FORMAT_V1(1) + byte thô của giá trị AES, nhỏ hơn Base64 khoảng 25% và nằm trong row
+ *   thay vì off-row như TEXT
+ * - Giá trị AES hiện tại là AES-GCM v2 của AESUtils: version(1) + algorithm(1) + keyId(1) + IV(12) + ciphertext + tag(16);
+ *   giá trị AES/CBC cũ (IV(16) + ciphertext) được lưu cùng cách
+ * - Dòng cũ là Base64 ASCII, không bao giờ bắt đầu bằng FORMAT_V1, nên được đọc nguyên văn
+ * - Code ngoài entity vẫn làm việc với chuỗi Base64 như trước
+ * Migration cột cũ (giữ nguyên byte ASCII của dòng cũ):
+ * ALTER TABLE transaction_history MODIFY account VARBINARY(128) NOT NULL
+ */
+@Converter
+public class EncryptedValueConverter implements AttributeConverter<String, byte[]> {
+    /**
+     * Đủ cho account tới 96 byte: 1 + 31 (header, IV, tag của AES-GCM) + 96 = 128
+     */
+    public static final String COLUMN_DEFINITION = "VARBINARY(128)";
+
+    private static final byte FORMAT_V1 = 1;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String value) {
+        if (value == null) return null;
+        byte[] raw = Base64.getDecoder().decode(value);
+        byte[] column = new byte[raw.length + 1];
+        column[0] = FORMAT_V1;
+        System.arraycopy(raw, 0, column, 1, raw.length);
+        return column;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] column) {
+        if (column == null) return null;
+        if (column.length > 0 && column[0] == FORMAT_V1) {
+            return Base64.getEncoder().encodeToString(Arrays.copyOfRange(column, 1, column.length));
+        }
+        return new String(column, StandardCharsets.US_ASCII);
+    }
+}
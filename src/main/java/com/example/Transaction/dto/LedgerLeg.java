@@ -0,0 +1,11 @@
+package com.example.Transaction.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một leg trong transaction_history, chỉ các cột cần cho đối soát (không có account)
+ * Đọc bằng constructor expression nên không phải entity managed, không tích lũy trong persistence context
+ */
+public record LedgerLeg(String transactionId, BigDecimal inDebt, BigDecimal have, LocalDateTime time) {
+}
@@ -0,0 +1,12 @@
+package com.example.Transaction.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Giao dịch đã ghi ở dạng lưu trữ: sourceAccount / destAccount là bản AES như trong transaction_history
+ * Dùng cho TransferLookupCache, chỉ giải mã khi dựng response
+ */
+public record StoredTransfer(String transactionId, String sourceAccount, String destAccount,
+                             BigDecimal amount, LocalDateTime time) {
+}
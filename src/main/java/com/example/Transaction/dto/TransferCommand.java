@@ -0,0 +1,22 @@
+package com.example.Transaction.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Giao dịch đã giải mã và parse, dùng chung cho mọi định dạng request
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class TransferCommand {
+    private final String transactionId;
+    private final String sourceAccount;
+    private final String destAccount;
+    private final BigDecimal amount;
+    private final LocalDateTime time;
+}
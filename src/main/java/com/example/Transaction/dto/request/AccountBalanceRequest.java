@@ -0,0 +1,13 @@
+package com.example.Transaction.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AccountBalanceRequest {
+    @NotBlank(message = "Account must not be blank")
+    private String account;
+}
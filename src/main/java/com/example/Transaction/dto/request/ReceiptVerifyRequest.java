@@ -0,0 +1,21 @@
+package com.example.Transaction.dto.request;
+
+import com.example.Transaction.dto.response.TransactionResponse;
+import com.example.Transaction.dto.response.TransferReceipt;
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+/**
+ * Kiểm tra biên nhận: data và receipt đúng như nhận được từ API
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReceiptVerifyRequest {
+    @NotNull(message = "Transaction data is required")
+    private TransactionResponse data;
+
+    @NotNull(message = "Receipt is required")
+    private TransferReceipt receipt;
+}
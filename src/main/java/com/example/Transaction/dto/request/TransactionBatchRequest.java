@@ -0,0 +1,20 @@
+package com.example.Transaction.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionBatchRequest {
+    public static final int MAX_BATCH_SIZE = 5000;
+
+    @NotEmpty(message = "Transactions must not be empty")
+    @Size(max = MAX_BATCH_SIZE, message = "Batch must not exceed " + MAX_BATCH_SIZE + " transactions")
+    private List<@Valid TransactionRequest> transactions;
+}
@@ -0,0 +1,18 @@
+package com.example.Transaction.dto.request;
+
+import lombok.*;
+
+/**
+ * Nội dung plain text bên trong envelope, sau khi giải mã AES-GCM
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionEnvelopePayload {
+    private String transactionId;
+    private String sourceAccount;
+    private String destAccount;
+    private String amount;
+    private String time;
+}
@@ -0,0 +1,31 @@
+package com.example.Transaction.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.*;
+
+/**
+ * Request dạng envelope (hybrid RSA + AES-GCM)
+ * - encryptedKey: AES-256 session key, mã hóa RSA-OAEP
+ * - iv: nonce 12 bytes của AES-GCM
+ * - payload: JSON {@link TransactionEnvelopePayload}, mã hóa AES-GCM bằng session key
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionEnvelopeRequest {
+    public static final String MEDIA_TYPE = "application/vnd.transaction.envelope+json";
+
+    @NotBlank(message = "Encrypted key must not be blank")
+    @Pattern(regexp = "^[A-Za-z0-9+/=]+$", message = "Encrypted key must be Base64")
+    private String encryptedKey;
+
+    @NotBlank(message = "IV must not be blank")
+    @Pattern(regexp = "^[A-Za-z0-9+/=]+$", message = "IV must be Base64")
+    private String iv;
+
+    @NotBlank(message = "Payload must not be blank")
+    @Pattern(regexp = "^[A-Za-z0-9+/=]+$", message = "Payload must be Base64")
+    private String payload;
+}
@@ -0,0 +1,35 @@
+package com.example.Transaction.dto.request;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tra cứu lịch sử theo account trong khoảng [from, to)
+ * Account mã hóa RSA như các request giao dịch
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionHistoryRequest {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    @NotBlank(message = "Account must not be blank")
+    private String account;
+
+    @NotNull(message = "From time is required")
+    private LocalDateTime from;
+
+    @NotNull(message = "To time is required")
+    private LocalDateTime to;
+
+    // Cursor trả về từ trang trước, bỏ trống để lấy trang đầu
+    private String cursor;
+
+    @Min(value = 1, message = "Size must be at least 1")
+    @Max(value = MAX_PAGE_SIZE, message = "Size must not exceed " + MAX_PAGE_SIZE)
+    private Integer size;
+}
@@ -0,0 +1,17 @@
+package com.example.Transaction.dto.request;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+/**
+ * Tra cứu giao dịch theo transactionId
+ * transactionId mã hóa RSA như khi gửi chuyển khoản
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionStatusRequest {
+    @NotBlank(message = "Transaction ID must not be blank")
+    private String transactionId;
+}
@@ -0,0 +1,18 @@
+package com.example.Transaction.dto.response;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalanceResponse {
+    private String account;
+    private BigDecimal totalInDebt;
+    private BigDecimal totalHave;
+    private BigDecimal balance;
+    private LocalDateTime updatedAt;
+}
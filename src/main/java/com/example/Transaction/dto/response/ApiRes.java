@@ -1,5 +1,6 @@
 package com.example.Transaction.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import org.springframework.http.HttpStatus;
 
@@ -12,11 +13,20 @@ public class ApiRes<T> {
     private String message;
     private T data;
     private Long timestamp;
+    // Chỉ có ở response giao dịch khi receipt.enabled=true
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private TransferReceipt receipt;
 
     public static <T> ApiRes<T> success(T data) {
         return build(HttpStatus.OK.value(), "Success", data);
     }
 
+    public static <T> ApiRes<T> signed(T data, TransferReceipt receipt) {
+        ApiRes<T> response = success(data);
+        response.setReceipt(receipt);
+        return response;
+    }
+
     public static <T> ApiRes<T> created(T data) {
         return build(HttpStatus.CREATED.value(), "Created", data);
     }
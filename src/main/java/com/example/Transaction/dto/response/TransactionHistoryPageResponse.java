@@ -0,0 +1,19 @@
+package com.example.Transaction.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Một trang lịch sử, nextCursor = null khi đã hết dữ liệu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionHistoryPageResponse {
+    private List<TransactionHistoryResponse> items;
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package com.example.Transaction.dto.response;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một giao dịch trên change feed, account là bản AES như lưu trong DB
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferEventResponse {
+    private long sequence;
+    private String transactionId;
+    private String sourceAccount;
+    private String destAccount;
+    private BigDecimal amount;
+    private LocalDateTime time;
+}
@@ -0,0 +1,25 @@
+package com.example.Transaction.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Biên nhận ký số cho một TransactionResponse (ReceiptSigner)
+ * - signature: SHA256withRSA trên "root|signedAt|leafCount", ký một lần cho cả batch
+ * - Leaf = H(0x00 || nonce || dạng chuẩn của response), proof là các hash anh em từ leaf lên root
+ * - Các giá trị byte mã hóa Base64
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferReceipt {
+    private String root;
+    private String signature;
+    private long signedAt;
+    private int leafIndex;
+    private int leafCount;
+    private String nonce;
+    private List<String> proof;
+}
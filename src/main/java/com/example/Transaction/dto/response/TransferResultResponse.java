@@ -0,0 +1,28 @@
+package com.example.Transaction.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+/**
+ * Kết quả của từng giao dịch trong batch, theo đúng thứ tự request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransferResultResponse {
+    private int index;
+    private boolean success;
+    private TransactionResponse data;
+    private String error;
+    private TransferReceipt receipt;
+
+    public static TransferResultResponse success(int index, TransactionResponse data) {
+        return TransferResultResponse.builder().index(index).success(true).data(data).build();
+    }
+
+    public static TransferResultResponse failure(int index, String error) {
+        return TransferResultResponse.builder().index(index).success(false).error(error).build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.Transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection số dư theo account, khóa bằng blind index (TransactionHistory.accountIndex)
+ * Cập nhật cùng transaction với các leg trong transaction_history, đọc số dư O(1)
+ */
+@Entity
+@Table(name = "account_balance")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalance {
+    @Id
+    @Column(length = 44)
+    private String accountIndex;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalInDebt;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalHave;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public BigDecimal getBalance() {
+        return totalHave.subtract(totalInDebt);
+    }
+}
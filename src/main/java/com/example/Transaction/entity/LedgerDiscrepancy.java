@@ -0,0 +1,52 @@
+package com.example.Transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Giao dịch sai khi đối soát (LedgerReconciliationJob): số leg khác 2 hoặc tổng inDebt khác tổng have
+ * Đối soát lại một cửa sổ thời gian thì các dòng cũ của cửa sổ đó bị thay thế
+ */
+@Entity
+@Table(name = "ledger_discrepancy", indexes = {
+        @Index(name = "idx_discrepancy_time", columnList = "time"),
+        @Index(name = "idx_discrepancy_transaction_id", columnList = "transactionId")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerDiscrepancy {
+    public static final String ID_SEQUENCE = "ledger_discrepancy_seq";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE,
+            allocationSize = TransactionHistory.ID_ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String transactionId;
+
+    @Column(nullable = false)
+    private Integer legs;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalInDebt;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalHave;
+
+    /**
+     * time của các leg (hai leg của một giao dịch luôn cùng time)
+     */
+    @Column(nullable = false)
+    private LocalDateTime time;
+
+    @Column(nullable = false)
+    private LocalDateTime detectedAt;
+}
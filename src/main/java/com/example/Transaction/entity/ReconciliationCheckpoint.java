@@ -0,0 +1,28 @@
+package com.example.Transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mốc thời gian đã đối soát xong (LedgerReconciliationJob), lần chạy sau chỉ quét các leg có time >= reconciledUntil
+ */
+@Entity
+@Table(name = "reconciliation_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationCheckpoint {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime reconciledUntil;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,34 @@
+package com.example.Transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tiến độ mã hóa lại transaction_history.account sang một key ID (AccountReencryptionJob)
+ * Mỗi key ID đích một dòng, lưu cùng transaction với chunk vừa ghi nên resume không bỏ sót dòng nào
+ */
+@Entity
+@Table(name = "reencryption_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReencryptionCheckpoint {
+    @Id
+    private Integer keyId;
+
+    /**
+     * ID lớn nhất của transaction_history đã xử lý xong
+     */
+    @Column(nullable = false)
+    private Long lastId;
+
+    @Column(nullable = false)
+    private Long rowsRewritten;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,5 +1,6 @@
 package com.example.Transaction.entity;
 
+import com.example.Transaction.converter.EncryptedValueConverter;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -9,7 +10,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "transaction_history", indexes = {
         @Index(name = "idx_transaction_id", columnList = "transactionId"),
-        @Index(name = "idx_time", columnList = "time")
+        @Index(name = "idx_time", columnList = "time"),
+        @Index(name = "idx_account_index_time", columnList = "accountIndex, time")
 })
 @Getter
 @Setter
@@ -17,16 +19,38 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 public class TransactionHistory {
+    public static final String ID_SEQUENCE = "transaction_history_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * ID cấp theo block từ sequence (pooled optimizer), không dùng IDENTITY
+     * - IDENTITY bắt Hibernate INSERT ngay để lấy ID nên không batch được
+     * - MySQL không có sequence, Hibernate tự dùng bảng transaction_history_seq thay thế
+     * Database đã có dữ liệu từ thời IDENTITY phải chạy db/transaction_history_seq.sql trước khi deploy,
+     * để sequence bắt đầu sau MAX(id); giá trị trong script đi theo ID_ALLOCATION_SIZE
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false, length = 100)
     private String transactionId;
 
-    @Column(nullable = false, columnDefinition = "TEXT")
+    /**
+     * Base64 từ AESUtils.encryptForDB, lưu dạng byte thô (EncryptedValueConverter)
+     */
+    @Convert(converter = EncryptedValueConverter.class)
+    @Column(nullable = false, columnDefinition = EncryptedValueConverter.COLUMN_DEFINITION)
     private String account;
 
+    /**
+     * Blind index HMAC của account (BlindIndexUtils), dùng để tìm theo account mà không giải mã cả bảng
+     * Nullable vì các dòng ghi trước khi có cột này chưa được backfill
+     */
+    @Column(length = 44)
+    private String accountIndex;
+
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal inDebt;
 
@@ -0,0 +1,41 @@
+package com.example.Transaction.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mỗi transactionId chỉ được ghi một lần, primary key là unique constraint chống ghi trùng
+ * Ghi cùng transaction với hai leg trong transaction_history
+ */
+@Entity
+@Table(name = "transfer_idempotency_key")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferIdempotencyKey implements Persistable<String> {
+    @Id
+    @Column(length = 100)
+    private String transactionId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public String getId() {
+        return transactionId;
+    }
+
+    /**
+     * Luôn là bản ghi mới: save() gọi persist thay vì merge, không SELECT trước khi INSERT
+     */
+    @Override
+    @Transient
+    public boolean isNew() {
+        return true;
+    }
+}
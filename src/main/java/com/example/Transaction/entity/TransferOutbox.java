@@ -0,0 +1,59 @@
+package com.example.Transaction.entity;
+
+import com.example.Transaction.converter.EncryptedValueConverter;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Outbox cho change feed: mỗi giao dịch một dòng, ghi cùng transaction với hai leg
+ * - Account giữ nguyên bản AES như trong transaction_history
+ * - sequence do relay cấp sau khi dòng đã commit, tăng liên tục theo thứ tự relay thấy dòng;
+ *   id cấp theo block nên không dùng làm vị trí đọc được (dòng id nhỏ có thể commit sau)
+ */
+@Entity
+@Table(name = "transfer_outbox", indexes = {
+        @Index(name = "idx_outbox_sequence", columnList = "sequence", unique = true),
+        @Index(name = "idx_outbox_created_at", columnList = "createdAt")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferOutbox {
+    public static final String ID_SEQUENCE = "transfer_outbox_seq";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE,
+            allocationSize = TransactionHistory.ID_ALLOCATION_SIZE)
+    private Long id;
+
+    /**
+     * Null cho đến khi relay publish
+     */
+    private Long sequence;
+
+    @Column(nullable = false, length = 100)
+    private String transactionId;
+
+    @Convert(converter = EncryptedValueConverter.class)
+    @Column(nullable = false, columnDefinition = EncryptedValueConverter.COLUMN_DEFINITION)
+    private String sourceAccount;
+
+    @Convert(converter = EncryptedValueConverter.class)
+    @Column(nullable = false, columnDefinition = EncryptedValueConverter.COLUMN_DEFINITION)
+    private String destAccount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private LocalDateTime time;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
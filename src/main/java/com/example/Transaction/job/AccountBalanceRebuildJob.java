@@ -0,0 +1,117 @@
+package com.example.Transaction.job;
+
+import com.example.Transaction.repository.AccountBalanceRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository.AccountTotals;
+import com.example.Transaction.service.IHistoryArchiveService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tính lại account_balance từ transaction_history
+ * - Chia account thành các chunk, mỗi chunk một transaction, chạy song song
+ * - Mỗi chunk upsert delta 0 vào các dòng balance (theo thứ tự accountIndex như lúc ghi giao dịch) rồi mới SUM lịch sử:
+ *   dòng chưa có được tạo luôn nên account chưa từng có số dư cũng bị khóa; giao dịch đang ghi vào các account này
+ *   phải chờ, cộng delta sau khi chunk commit nên không mất / trùng
+ * - Tổng mới ghi bằng upsert (setTotals), không INSERT riêng nên không đụng unique key với giao dịch đầu tiên của account
+ * - Cộng cả các dòng đã lưu trữ ra segment file (IHistoryArchiveService)
+ * - Bật khi khởi động bằng balance.rebuild.on-startup=true
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountBalanceRebuildJob implements ApplicationRunner {
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final AccountBalanceRepository accountBalanceRepository;
+    private final IHistoryArchiveService historyArchiveService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${balance.rebuild.on-startup}")
+    private boolean rebuildOnStartup;
+
+    @Value("${balance.rebuild.chunk-size}")
+    private int chunkSize;
+
+    @Value("${balance.rebuild.parallelism}")
+    private int parallelism;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return số account đã tính lại
+     */
+    public int rebuild() {
+        Set<String> distinct = new HashSet<>(transactionHistoryRepository.findDistinctAccountIndexes());
+        distinct.addAll(historyArchiveService.findAccountIndexes());
+        List<String> accountIndexes = new ArrayList<>(distinct);
+        Collections.sort(accountIndexes);
+        log.info("Rebuilding account balances for {} accounts, chunk size {}, parallelism {}",
+                accountIndexes.size(), chunkSize, parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                new CustomizableThreadFactory("balance-rebuild-"));
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int from = 0; from < accountIndexes.size(); from += chunkSize) {
+                List<String> chunk = accountIndexes.subList(from, Math.min(from + chunkSize, accountIndexes.size()));
+                futures.add(CompletableFuture.runAsync(() -> rebuildChunk(chunk), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        log.info("Account balance rebuild finished for {} accounts", accountIndexes.size());
+        return accountIndexes.size();
+    }
+
+    private void rebuildChunk(List<String> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // chunk là một đoạn của danh sách đã sort: khóa theo thứ tự accountIndex tăng dần
+            LocalDateTime now = LocalDateTime.now();
+            for (String accountIndex : chunk) {
+                accountBalanceRepository.addDelta(accountIndex, BigDecimal.ZERO, BigDecimal.ZERO, now);
+            }
+
+            // [totalInDebt, totalHave] theo account, cộng phần trong DB và phần đã lưu trữ
+            Map<String, BigDecimal[]> sums = new HashMap<>();
+            List<AccountTotals> totals = new ArrayList<>(transactionHistoryRepository.sumByAccountIndexIn(chunk));
+            totals.addAll(historyArchiveService.sumByAccountIndexIn(chunk));
+            for (AccountTotals total : totals) {
+                BigDecimal[] sum = sums.computeIfAbsent(total.getAccountIndex(),
+                        accountIndex -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                sum[0] = sum[0].add(total.getTotalInDebt());
+                sum[1] = sum[1].add(total.getTotalHave());
+            }
+
+            for (String accountIndex : chunk) {
+                BigDecimal[] sum = sums.getOrDefault(accountIndex, new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                accountBalanceRepository.setTotals(accountIndex, sum[0], sum[1], now);
+            }
+        });
+    }
+}
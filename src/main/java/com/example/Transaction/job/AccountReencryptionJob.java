@@ -0,0 +1,205 @@
+package com.example.Transaction.job;
+
+import com.example.Transaction.converter.EncryptedValueConverter;
+import com.example.Transaction.entity.ReencryptionCheckpoint;
+import com.example.Transaction.repository.ReencryptionCheckpointRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository.AccountCiphertext;
+import com.example.Transaction.util.AESUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mã hóa lại transaction_history.account bằng key hiện tại sau khi đổi encryption.aes.master.key / key-id
+ * - Đi theo keyset trên primary key từng chunk; mỗi chunk chia slice, giải mã / mã hóa song song trên ForkJoinPool riêng
+ *   (AESUtils.reencryptAll, một Cipher mỗi slice), ghi lại bằng JDBC batch UPDATE
+ * - Checkpoint (reencryption_checkpoint, theo key ID đích) lưu cùng transaction với chunk nên dừng giữa chừng thì resume
+ *   từ chunk chưa commit; dòng đã ở key hiện tại được bỏ qua nên chạy lại cũng không sao
+ * - Giới hạn reencryption.rows-per-second và chunk nhỏ: mỗi transaction ngắn, chỉ giữ một connection,
+ *   parallelism thấp để không tranh CPU với giao dịch; dòng mới ghi đã dùng key hiện tại nên chỉ quét tới MAX(id) lúc bắt đầu
+ * - Bật khi khởi động bằng reencryption.on-startup=true, chạy nền trên thread riêng
+ * - Chỉ chạy khi mọi instance đã dùng key-id mới và key cũ đã nằm trong encryption.aes.retired-keys
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountReencryptionJob implements ApplicationRunner {
+    private static final String UPDATE_ACCOUNT = "UPDATE transaction_history SET account = ? WHERE id = ?";
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final ReencryptionCheckpointRepository checkpointRepository;
+    private final AESUtils aesUtils;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final EncryptedValueConverter converter = new EncryptedValueConverter();
+
+    @Value("${reencryption.on-startup}")
+    private boolean reencryptOnStartup;
+
+    @Value("${reencryption.chunk-size}")
+    private int chunkSize;
+
+    @Value("${reencryption.rows-per-second}")
+    private int rowsPerSecond;
+
+    @Value("${reencryption.parallelism}")
+    private int parallelism;
+
+    private final AtomicLong lastId = new AtomicLong();
+    private final AtomicLong targetId = new AtomicLong();
+    private Counter scannedCounter;
+    private Counter rewrittenCounter;
+
+    private Thread worker;
+    private volatile boolean closed;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        scannedCounter = meterRegistry.counter("reencryption.rows.scanned");
+        rewrittenCounter = meterRegistry.counter("reencryption.rows.rewritten");
+        Gauge.builder("reencryption.last.id", lastId, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("reencryption.target.id", targetId, AtomicLong::get).register(meterRegistry);
+
+        if (reencryptOnStartup) {
+            worker = new Thread(this::reencrypt, "aes-reencryption");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        closed = true;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return số dòng đã ghi lại trong lần chạy này
+     */
+    public long reencrypt() {
+        int keyId = aesUtils.getKeyId();
+        ReencryptionCheckpoint checkpoint = checkpointRepository.findById(keyId)
+                .orElseGet(() -> ReencryptionCheckpoint.builder()
+                        .keyId(keyId)
+                        .lastId(0L)
+                        .rowsRewritten(0L)
+                        .build());
+        Long maxId = transactionHistoryRepository.findMaxId();
+        long target = maxId == null ? 0L : maxId;
+        lastId.set(checkpoint.getLastId());
+        targetId.set(target);
+        log.info("Re-encrypting accounts to key ID {} from id {} to {}, chunk size {}, {} rows/s, parallelism {}",
+                keyId, checkpoint.getLastId(), target, chunkSize, rowsPerSecond, parallelism);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long rewritten = 0;
+        long scanned = 0;
+        long start = System.nanoTime();
+        try {
+            while (!closed && checkpoint.getLastId() < target) {
+                List<AccountCiphertext> rows = transactionHistoryRepository.findAccountsAfter(
+                        checkpoint.getLastId(), Limit.of(chunkSize));
+                if (rows.isEmpty()) break;
+
+                List<String> reencrypted = reencrypt(pool, rows);
+                int count = write(checkpoint, rows, reencrypted);
+                rewritten += count;
+                scanned += rows.size();
+                scannedCounter.increment(rows.size());
+                rewrittenCounter.increment(count);
+                lastId.set(checkpoint.getLastId());
+
+                throttle(scanned, start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+
+        log.info("Account re-encryption to key ID {} {} at id {}, {} rows rewritten",
+                keyId, checkpoint.getLastId() >= target ? "finished" : "stopped", checkpoint.getLastId(), rewritten);
+        return rewritten;
+    }
+
+    private List<String> reencrypt(ForkJoinPool pool, List<AccountCiphertext> rows) {
+        List<String> accounts = rows.stream().map(AccountCiphertext::getAccount).toList();
+        int sliceSize = (accounts.size() + parallelism - 1) / parallelism;
+
+        List<ForkJoinTask<List<String>>> tasks = new ArrayList<>();
+        for (int from = 0; from < accounts.size(); from += sliceSize) {
+            List<String> slice = accounts.subList(from, Math.min(from + sliceSize, accounts.size()));
+            tasks.add(pool.submit(() -> aesUtils.reencryptAll(slice)));
+        }
+
+        List<String> reencrypted = new ArrayList<>(accounts.size());
+        for (ForkJoinTask<List<String>> task : tasks) {
+            reencrypted.addAll(task.join());
+        }
+        return reencrypted;
+    }
+
+    /**
+     * Ghi các dòng đã mã hóa lại và checkpoint trong cùng một transaction
+     * @return số dòng đã ghi
+     */
+    private int write(ReencryptionCheckpoint checkpoint, List<AccountCiphertext> rows, List<String> reencrypted) {
+        List<Object[]> updates = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (reencrypted.get(i) != null) {
+                updates.add(new Object[]{converter.convertToDatabaseColumn(reencrypted.get(i)), rows.get(i).getId()});
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_ACCOUNT, updates);
+            }
+            checkpoint.setLastId(rows.get(rows.size() - 1).getId());
+            checkpoint.setRowsRewritten(checkpoint.getRowsRewritten() + updates.size());
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+        });
+        return updates.size();
+    }
+
+    /**
+     * Giữ tốc độ trung bình từ lúc bắt đầu không vượt rows-per-second
+     */
+    private void throttle(long scanned, long start) throws InterruptedException {
+        long expectedNanos = scanned * TimeUnit.SECONDS.toNanos(1) / rowsPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - start);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+}
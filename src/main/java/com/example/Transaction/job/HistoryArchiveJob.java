@@ -0,0 +1,257 @@
+package com.example.Transaction.job;
+
+import com.example.Transaction.entity.ReconciliationCheckpoint;
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.repository.ReconciliationCheckpointRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.service.IHistoryArchiveService;
+import com.example.Transaction.util.ArchiveSegment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.example.Transaction.service.impl.HistoryArchiveService.PENDING_SUFFIX;
+import static com.example.Transaction.service.impl.HistoryArchiveService.SEGMENT_PREFIX;
+import static com.example.Transaction.service.impl.HistoryArchiveService.SEGMENT_SUFFIX;
+
+/**
+ * Chuyển các dòng transaction_history cũ hơn archive.age-days ra segment file (ArchiveSegment) trên đĩa local
+ * - Mỗi segment tối đa max-segment-rows dòng, đọc bằng stream theo (time, id) trong một transaction read-only riêng
+ * - Thứ tự an toàn khi crash: ghi history-N.seg.tmp và fsync -> đưa vào HistoryArchiveService (đọc được, bỏ trùng
+ *   với DB) -> xóa các dòng theo id của segment từng chunk -> đổi tên thành .seg.
+ *   Khởi động lại: .tmp hoàn chỉnh thì xóa tiếp theo id rồi đổi tên, .tmp ghi dở thì xóa file
+ * - Xóa theo id chứ không theo khoảng thời gian: dòng ghi muộn với time cũ ở lại DB, lần sau vào segment khác
+ * - Không lưu trữ quá checkpoint của LedgerReconciliationJob, dòng đã lưu trữ không được đối soát lại;
+ *   chưa có checkpoint (đối soát chưa chạy hoặc bị tắt) thì không lưu trữ gì
+ * - account_balance không đổi; AccountBalanceRebuildJob cộng cả phần đã lưu trữ
+ * - Giá trị account trong segment giữ nguyên key lúc lưu trữ, AccountReencryptionJob không ghi lại:
+ *   key cũ phải nằm trong encryption.aes.retired-keys chừng nào còn segment dùng key đó
+ * - Bật bằng archive.enabled=true, chạy nền mỗi interval-minutes
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HistoryArchiveJob implements ApplicationRunner {
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final ReconciliationCheckpointRepository reconciliationCheckpointRepository;
+    private final IHistoryArchiveService historyArchiveService;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${archive.enabled}")
+    private boolean enabled;
+
+    @Value("${archive.dir}")
+    private String archiveDir;
+
+    @Value("${archive.age-days}")
+    private long ageDays;
+
+    @Value("${archive.max-segment-rows}")
+    private int maxSegmentRows;
+
+    @Value("${archive.row-group-size}")
+    private int rowGroupSize;
+
+    @Value("${archive.compression-level}")
+    private int compressionLevel;
+
+    @Value("${archive.delete-chunk-size}")
+    private int deleteChunkSize;
+
+    @Value("${archive.interval-minutes}")
+    private long intervalMinutes;
+
+    private TransactionTemplate readOnlyTemplate;
+    private Counter archivedCounter;
+    private long nextSequence;
+
+    private Thread worker;
+    private volatile boolean closed;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!enabled) return;
+
+        readOnlyTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTemplate.setReadOnly(true);
+        archivedCounter = meterRegistry.counter("archive.rows.archived");
+        Files.createDirectories(Paths.get(archiveDir));
+
+        worker = new Thread(this::archiveLoop, "history-archive");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void close() {
+        closed = true;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void archiveLoop() {
+        try {
+            recoverPending();
+        } catch (IOException | RuntimeException e) {
+            log.error("Recovering pending archive segments failed, archiving disabled until restart", e);
+            return;
+        }
+        while (!closed) {
+            try {
+                archive();
+            } catch (IOException | RuntimeException e) {
+                log.error("History archiving failed, will retry", e);
+            }
+            try {
+                TimeUnit.MINUTES.sleep(intervalMinutes);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return số dòng đã chuyển ra segment
+     */
+    public long archive() throws IOException {
+        LocalDateTime reconciledUntil = reconciliationCheckpointRepository
+                .findById(LedgerReconciliationJob.CHECKPOINT_NAME)
+                .map(ReconciliationCheckpoint::getReconciledUntil)
+                .orElse(null);
+        if (reconciledUntil == null) {
+            log.warn("No reconciliation checkpoint yet, skipping history archiving");
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(ageDays);
+        if (reconciledUntil.isBefore(cutoff)) {
+            cutoff = reconciledUntil;
+        }
+
+        long archived = 0;
+        while (!closed) {
+            Path pending = writeSegment(cutoff);
+            if (pending == null) break;
+            archived += finish(pending);
+        }
+        if (archived > 0) {
+            log.info("Archived {} history rows older than {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    /**
+     * @return file .seg.tmp đã fsync, null nếu không còn dòng nào cũ hơn cutoff
+     */
+    private Path writeSegment(LocalDateTime cutoff) throws IOException {
+        Path pending = Paths.get(archiveDir).resolve(
+                SEGMENT_PREFIX + String.format("%020d", nextSequence++) + PENDING_SUFFIX);
+        try {
+            Integer rows = readOnlyTemplate.execute(status -> {
+                try (Stream<TransactionHistory> stream = transactionHistoryRepository.streamOlderThan(cutoff);
+                     ArchiveSegment.Writer writer = new ArchiveSegment.Writer(pending, rowGroupSize, compressionLevel)) {
+                    Iterator<TransactionHistory> iterator = stream.iterator();
+                    while (writer.getRowCount() < maxSegmentRows && iterator.hasNext() && !closed) {
+                        writer.append(iterator.next());
+                        if (writer.getRowCount() % rowGroupSize == 0) {
+                            entityManager.clear();
+                        }
+                    }
+                    if (writer.getRowCount() > 0 && !closed) {
+                        writer.finish();
+                    }
+                    return writer.getRowCount();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (rows == null || rows == 0 || closed) {
+                Files.deleteIfExists(pending);
+                return null;
+            }
+            return pending;
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(pending);
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(pending);
+            throw e;
+        }
+    }
+
+    /**
+     * Đưa segment vào đọc, xóa các dòng của nó khỏi DB rồi đổi tên thành .seg; chạy lại được nhiều lần
+     */
+    private long finish(Path pending) throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(pending);
+        historyArchiveService.register(segment);
+
+        long[] ids = segment.ids();
+        for (int from = 0; from < ids.length; from += deleteChunkSize) {
+            List<Long> chunk = new ArrayList<>(Math.min(deleteChunkSize, ids.length - from));
+            for (int i = from; i < Math.min(from + deleteChunkSize, ids.length); i++) {
+                chunk.add(ids[i]);
+            }
+            transactionTemplate.executeWithoutResult(status -> transactionHistoryRepository.deleteByIdIn(chunk));
+        }
+
+        String name = pending.getFileName().toString();
+        Path archived = pending.resolveSibling(name.substring(0, name.length() - PENDING_SUFFIX.length()) + SEGMENT_SUFFIX);
+        Files.move(pending, archived, StandardCopyOption.ATOMIC_MOVE);
+        archivedCounter.increment(ids.length);
+        log.info("Archive segment {} written: {} rows, time {} - {}", archived.getFileName(),
+                segment.getRowCount(), segment.getMinTime(), segment.getMaxTime());
+        return ids.length;
+    }
+
+    private void recoverPending() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(Paths.get(archiveDir))) {
+            files = list.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int end = name.indexOf(SEGMENT_SUFFIX);
+            if (end > SEGMENT_PREFIX.length()) {
+                nextSequence = Math.max(nextSequence, Long.parseLong(name.substring(SEGMENT_PREFIX.length(), end)) + 1);
+            }
+            if (!name.endsWith(PENDING_SUFFIX)) continue;
+            try {
+                finish(file);
+            } catch (IllegalStateException e) {
+                log.warn("Deleting incomplete archive segment {}: {}", name, e.getMessage());
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.Transaction.job;
+
+import com.example.Transaction.dto.LedgerLeg;
+import com.example.Transaction.entity.LedgerDiscrepancy;
+import com.example.Transaction.entity.ReconciliationCheckpoint;
+import com.example.Transaction.repository.LedgerDiscrepancyRepository;
+import com.example.Transaction.repository.ReconciliationCheckpointRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.util.LedgerTally;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Đối soát sổ cái: mỗi transactionId phải có đúng 2 leg và tổng inDebt bằng tổng have
+ * - Chia khoảng [checkpoint, now - settle-minutes) thành các cửa sổ thời gian, chạy song song trên parallelism thread,
+ *   mỗi cửa sổ một stream read-only theo idx_time (fetch size lớn, useCursorFetch) nên heap không phụ thuộc số dòng
+ * - Hai leg của một giao dịch luôn cùng time: tổng hợp theo từng giá trị time bằng LedgerTally (mảng primitive,
+ *   dùng lại giữa các nhóm) rồi kiểm tra và bỏ ngay, bộ nhớ chỉ tỉ lệ với số leg cùng một time
+ * - Kết quả ghi vào ledger_discrepancy (thay kết quả cũ của cùng cửa sổ), tối đa max-discrepancies-per-window dòng mỗi cửa sổ
+ * - Checkpoint chỉ tiến qua các cửa sổ liên tiếp đã xong, cửa sổ lỗi được chạy lại ở lần sau;
+ *   metric reconciliation.rows.scanned / reconciliation.discrepancies chỉ cộng khi checkpoint đã qua cửa sổ
+ * - Leg ghi muộn với time cũ hơn checkpoint (client gửi time quá settle-minutes) không được quét lại
+ * - Bật bằng reconciliation.enabled=true, chạy nền mỗi interval-minutes
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LedgerReconciliationJob implements ApplicationRunner {
+    public static final String CHECKPOINT_NAME = "ledger";
+    private static final int TALLY_INITIAL_SIZE = 1024;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final LedgerDiscrepancyRepository discrepancyRepository;
+    private final ReconciliationCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${reconciliation.enabled}")
+    private boolean enabled;
+
+    @Value("${reconciliation.interval-minutes}")
+    private long intervalMinutes;
+
+    @Value("${reconciliation.window-minutes}")
+    private long windowMinutes;
+
+    @Value("${reconciliation.settle-minutes}")
+    private long settleMinutes;
+
+    @Value("${reconciliation.parallelism}")
+    private int parallelism;
+
+    @Value("${reconciliation.max-discrepancies-per-window}")
+    private int maxDiscrepanciesPerWindow;
+
+    /**
+     * Tổng kết một lần đối soát
+     */
+    public record Report(LocalDateTime from, LocalDateTime to, long rows, long transactions, long discrepancies) {
+    }
+
+    private record WindowResult(long rows, long transactions, long discrepancies) {
+    }
+
+    private TransactionTemplate readOnlyTemplate;
+    private final AtomicLong reconciledUntil = new AtomicLong();
+    private Counter rowsCounter;
+    private Counter discrepancyCounter;
+
+    private Thread worker;
+    private volatile boolean closed;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        readOnlyTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTemplate.setReadOnly(true);
+        rowsCounter = meterRegistry.counter("reconciliation.rows.scanned");
+        discrepancyCounter = meterRegistry.counter("reconciliation.discrepancies");
+        Gauge.builder("reconciliation.reconciled.until", reconciledUntil, AtomicLong::get).register(meterRegistry);
+
+        if (enabled) {
+            worker = new Thread(this::reconcileLoop, "ledger-reconciliation");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        closed = true;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void reconcileLoop() {
+        while (!closed) {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.error("Ledger reconciliation failed, will retry", e);
+            }
+            try {
+                TimeUnit.MINUTES.sleep(intervalMinutes);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Đối soát từ checkpoint tới now - settle-minutes
+     */
+    public Report reconcile() {
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT_NAME).orElse(null);
+        LocalDateTime from = checkpoint != null ? checkpoint.getReconciledUntil() : transactionHistoryRepository.findMinTime();
+        LocalDateTime to = LocalDateTime.now().minusMinutes(settleMinutes);
+        if (from == null || !from.isBefore(to)) {
+            return new Report(from, to, 0, 0, 0);
+        }
+        reconciledUntil.set(from.atZone(ZoneId.systemDefault()).toEpochSecond());
+        log.info("Reconciling ledger from {} to {}, window {} minutes, parallelism {}",
+                from, to, windowMinutes, parallelism);
+
+        List<LocalDateTime> bounds = new ArrayList<>();
+        for (LocalDateTime bound = from; bound.isBefore(to); bound = bound.plusMinutes(windowMinutes)) {
+            bounds.add(bound);
+        }
+        bounds.add(to);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                new CustomizableThreadFactory("ledger-reconcile-"));
+        long rows = 0;
+        long transactions = 0;
+        long discrepancies = 0;
+        LocalDateTime completed = from;
+        try {
+            List<CompletableFuture<WindowResult>> futures = new ArrayList<>(bounds.size() - 1);
+            for (int i = 0; i < bounds.size() - 1; i++) {
+                LocalDateTime windowFrom = bounds.get(i);
+                LocalDateTime windowTo = bounds.get(i + 1);
+                futures.add(CompletableFuture.supplyAsync(() -> reconcileWindow(windowFrom, windowTo), executor));
+            }
+
+            // Checkpoint tiến theo thứ tự cửa sổ, dừng ở cửa sổ lỗi đầu tiên
+            for (int i = 0; i < futures.size() && !closed; i++) {
+                WindowResult result;
+                try {
+                    result = futures.get(i).join();
+                } catch (CompletionException e) {
+                    log.error("Reconciling window {} - {} failed", bounds.get(i), bounds.get(i + 1), e.getCause());
+                    break;
+                }
+                rows += result.rows();
+                transactions += result.transactions();
+                discrepancies += result.discrepancies();
+                completed = bounds.get(i + 1);
+                saveCheckpoint(completed);
+                // Chỉ đếm cửa sổ đã nằm sau checkpoint: cửa sổ xong sau cửa sổ lỗi sẽ được quét và đếm lại ở lần sau
+                rowsCounter.increment(result.rows());
+                discrepancyCounter.increment(result.discrepancies());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Report report = new Report(from, completed, rows, transactions, discrepancies);
+        if (discrepancies > 0) {
+            log.warn("Ledger reconciliation {} - {}: {} rows, {} transactions, {} discrepancies (see ledger_discrepancy)",
+                    report.from(), report.to(), rows, transactions, discrepancies);
+        } else {
+            log.info("Ledger reconciliation {} - {}: {} rows, {} transactions, no discrepancies",
+                    report.from(), report.to(), rows, transactions);
+        }
+        return report;
+    }
+
+    private WindowResult reconcileWindow(LocalDateTime from, LocalDateTime to) {
+        LedgerTally tally = new LedgerTally(TALLY_INITIAL_SIZE);
+        List<LedgerDiscrepancy> found = new ArrayList<>();
+        long[] totals = new long[3];
+
+        readOnlyTemplate.executeWithoutResult(status -> {
+            try (Stream<LedgerLeg> legs = transactionHistoryRepository.streamLedgerLegs(from, to)) {
+                Iterator<LedgerLeg> iterator = legs.iterator();
+                LocalDateTime groupTime = null;
+                while (iterator.hasNext() && !closed) {
+                    LedgerLeg leg = iterator.next();
+                    if (!leg.time().equals(groupTime)) {
+                        flush(tally, groupTime, found, totals);
+                        groupTime = leg.time();
+                    }
+                    tally.add(leg.transactionId(), toCents(leg.inDebt()), toCents(leg.have()));
+                    totals[0]++;
+                }
+                flush(tally, groupTime, found, totals);
+            }
+        });
+        if (closed) {
+            throw new IllegalStateException("Reconciliation stopped");
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            discrepancyRepository.deleteByTimeRange(from, to);
+            discrepancyRepository.saveAll(found);
+        });
+        if (totals[2] > found.size()) {
+            log.warn("Window {} - {} has {} discrepancies, only {} recorded", from, to, totals[2], found.size());
+        }
+        return new WindowResult(totals[0], totals[1], totals[2]);
+    }
+
+    /**
+     * Kiểm tra các giao dịch cùng một time rồi xóa tally
+     * totals: [rows, transactions, discrepancies]
+     */
+    private void flush(LedgerTally tally, LocalDateTime time, List<LedgerDiscrepancy> found, long[] totals) {
+        if (tally.size() == 0) return;
+        totals[1] += tally.size();
+        LocalDateTime now = LocalDateTime.now();
+        tally.forEachUnbalanced((transactionId, legs, debitCents, creditCents) -> {
+            totals[2]++;
+            if (found.size() < maxDiscrepanciesPerWindow) {
+                found.add(LedgerDiscrepancy.builder()
+                        .transactionId(transactionId)
+                        .legs(legs)
+                        .totalInDebt(BigDecimal.valueOf(debitCents, 2))
+                        .totalHave(BigDecimal.valueOf(creditCents, 2))
+                        .time(time)
+                        .detectedAt(now)
+                        .build());
+            }
+        });
+        tally.clear();
+    }
+
+    private void saveCheckpoint(LocalDateTime until) {
+        transactionTemplate.executeWithoutResult(status -> checkpointRepository.save(ReconciliationCheckpoint.builder()
+                .name(CHECKPOINT_NAME)
+                .reconciledUntil(until)
+                .updatedAt(LocalDateTime.now())
+                .build()));
+        reconciledUntil.set(until.atZone(ZoneId.systemDefault()).toEpochSecond());
+    }
+
+    /**
+     * Cột amount có scale 2, đổi sang đơn vị nhỏ nhất; vượt long thì ném ArithmeticException (cửa sổ bị coi là lỗi)
+     */
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+}
@@ -1,11 +1,19 @@
 package com.example.Transaction.mapper;
 
+import com.example.Transaction.dto.StoredTransfer;
 import com.example.Transaction.dto.response.TransactionHistoryResponse;
+import com.example.Transaction.dto.response.TransactionResponse;
+import com.example.Transaction.dto.response.TransferEventResponse;
 import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.entity.TransferOutbox;
 import com.example.Transaction.util.AESUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class TransactionMapper {
@@ -20,4 +28,76 @@ public class TransactionMapper {
                 .time(th.getTime())
                 .build();
     }
+
+    /**
+     * Giải mã cả danh sách bằng một cipher context (AESUtils.decryptAll), giữ nguyên thứ tự
+     */
+    public List<TransactionHistoryResponse> toHistoryResponses(List<TransactionHistory> rows) {
+        List<String> encrypted = new ArrayList<>(rows.size());
+        for (TransactionHistory row : rows) {
+            encrypted.add(row.getAccount());
+        }
+        List<String> accounts = aesUtils.decryptAll(encrypted);
+
+        List<TransactionHistoryResponse> responses = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            TransactionHistory th = rows.get(i);
+            responses.add(TransactionHistoryResponse.builder()
+                    .transactionId(th.getTransactionId())
+                    .account(accounts.get(i))
+                    .inDebt(th.getInDebt())
+                    .have(th.getHave())
+                    .time(th.getTime())
+                    .build());
+        }
+        return responses;
+    }
+
+    /**
+     * Gộp hai leg debit / credit của giao dịch đã ghi thành StoredTransfer, không giải mã account
+     */
+    public StoredTransfer toStoredTransfer(List<TransactionHistory> legs) {
+        TransactionHistory debit = null;
+        TransactionHistory credit = null;
+        for (TransactionHistory leg : legs) {
+            if (leg.getInDebt().compareTo(BigDecimal.ZERO) > 0) {
+                debit = leg;
+            } else {
+                credit = leg;
+            }
+        }
+        if (debit == null || credit == null) {
+            throw new IllegalStateException("Incomplete ledger entries for transaction " + legs.get(0).getTransactionId());
+        }
+        return new StoredTransfer(debit.getTransactionId(), debit.getAccount(), credit.getAccount(),
+                debit.getInDebt(), debit.getTime());
+    }
+
+    /**
+     * Dựng lại TransactionResponse, giải mã hai account bằng một cipher context
+     */
+    public TransactionResponse toTransactionResponse(StoredTransfer transfer) {
+        List<String> accounts = aesUtils.decryptAll(List.of(transfer.sourceAccount(), transfer.destAccount()));
+        return TransactionResponse.builder()
+                .transactionId(transfer.transactionId())
+                .sourceAccount(accounts.get(0))
+                .destAccount(accounts.get(1))
+                .amount(transfer.amount())
+                .time(transfer.time())
+                .build();
+    }
+
+    /**
+     * Không giải mã: account trên change feed giữ bản AES
+     */
+    public TransferEventResponse toTransferEvent(TransferOutbox outbox) {
+        return TransferEventResponse.builder()
+                .sequence(outbox.getSequence())
+                .transactionId(outbox.getTransactionId())
+                .sourceAccount(outbox.getSourceAccount())
+                .destAccount(outbox.getDestAccount())
+                .amount(outbox.getAmount())
+                .time(outbox.getTime())
+                .build();
+    }
 }
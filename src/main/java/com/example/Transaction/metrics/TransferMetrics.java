@@ -0,0 +1,157 @@
+package com.example.Transaction.metrics;
+
+import com.example.Transaction.exception.AESProcessingException;
+import com.example.Transaction.exception.RSAKeyLoadException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer cho từng stage của pipeline chuyển khoản và counter cho lý do lỗi
+ * - Meter đăng ký sẵn một lần, ghi bằng System.nanoTime() nên không cấp phát object mỗi lần gọi
+ * - Xuất qua Actuator: /actuator/prometheus
+ */
+@Component
+public class TransferMetrics {
+    private static final String STAGE_TIMER = "transfer.stage";
+    private static final String FAILURE_COUNTER = "transfer.failures";
+    private static final String DUPLICATE_COUNTER = "transfer.duplicates";
+    private static final String REJECTION_COUNTER = "transfer.admission.rejected";
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    public enum Stage {
+        RSA_DECRYPT("rsa_decrypt"),
+        ENVELOPE_DECRYPT("envelope_decrypt"),
+        PARSE("parse"),
+        MASK_LOG("mask_log"),
+        AES_ENCRYPT("aes_encrypt"),
+        BLIND_INDEX("blind_index"),
+        DB_WRITE("db_write"),
+        BATCH_WRITE("batch_write"),
+        JOURNAL_APPEND("journal_append");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum FailureReason {
+        RSA_DECRYPT("rsa_decrypt"),
+        AES("aes"),
+        MALFORMED_PAYLOAD("malformed_payload"),
+        MALFORMED_FIELD("malformed_field"),
+        INVALID_AMOUNT("invalid_amount"),
+        DB_WRITE("db_write"),
+        OVERLOADED("overloaded"),
+        OTHER("other");
+
+        private final String tag;
+
+        FailureReason(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * Phân loại exception thành lý do lỗi, thứ tự kiểm tra quan trọng:
+         * NumberFormatException là con của IllegalArgumentException
+         */
+        public static FailureReason of(Throwable e) {
+            if (e instanceof RSAKeyLoadException) return RSA_DECRYPT;
+            if (e instanceof AESProcessingException) return AES;
+            if (e instanceof IOException) return MALFORMED_PAYLOAD;
+            if (e instanceof NumberFormatException || e instanceof DateTimeParseException) return MALFORMED_FIELD;
+            if (e instanceof IllegalArgumentException) return INVALID_AMOUNT;
+            if (e instanceof DataAccessException || e instanceof TransactionException) return DB_WRITE;
+            if (e instanceof RejectedExecutionException) return OVERLOADED;
+            return OTHER;
+        }
+    }
+
+    /**
+     * Lý do request bị chặn ở admission, trước khi tốn RSA
+     */
+    public enum Rejection {
+        MALFORMED("malformed"),
+        RATE_LIMITED("rate_limited"),
+        OVERLOADED("overloaded");
+
+        private final String tag;
+
+        Rejection(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Timer[] timers;
+    private final Counter[] failures;
+    private final Counter duplicates;
+    private final Counter[] rejections;
+
+    public TransferMetrics(MeterRegistry registry) {
+        Stage[] stages = Stage.values();
+        timers = new Timer[stages.length];
+        for (Stage stage : stages) {
+            timers[stage.ordinal()] = Timer.builder(STAGE_TIMER)
+                    .description("Latency of one stage of the transfer pipeline")
+                    .tag("stage", stage.tag)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        FailureReason[] reasons = FailureReason.values();
+        failures = new Counter[reasons.length];
+        for (FailureReason reason : reasons) {
+            failures[reason.ordinal()] = Counter.builder(FAILURE_COUNTER)
+                    .description("Failed transfers by reason")
+                    .tag("reason", reason.tag)
+                    .register(registry);
+        }
+
+        duplicates = Counter.builder(DUPLICATE_COUNTER)
+                .description("Repeated transactionIds answered with the original result")
+                .register(registry);
+
+        Rejection[] rejectionReasons = Rejection.values();
+        rejections = new Counter[rejectionReasons.length];
+        for (Rejection rejection : rejectionReasons) {
+            rejections[rejection.ordinal()] = Counter.builder(REJECTION_COUNTER)
+                    .description("Transfer requests rejected before decryption")
+                    .tag("reason", rejection.tag)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Ghi thời gian stage tính từ startNanos (lấy bằng System.nanoTime())
+     */
+    public void record(Stage stage, long startNanos) {
+        timers[stage.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFailure(Throwable e) {
+        recordFailure(FailureReason.of(e));
+    }
+
+    public void recordFailure(FailureReason reason) {
+        failures[reason.ordinal()].increment();
+    }
+
+    public void recordDuplicate() {
+        duplicates.increment();
+    }
+
+    public void recordRejection(Rejection rejection) {
+        rejections[rejection.ordinal()].increment();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.Transaction.repository;
+
+import com.example.Transaction.entity.AccountBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Repository
+public interface AccountBalanceRepository extends JpaRepository<AccountBalance, String> {
+    /**
+     * Cộng dồn delta vào số dư, tạo dòng mới nếu account chưa có
+     * Một statement, row lock do chính UPDATE giữ đến hết transaction
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_balance (account_index, total_in_debt, total_have, updated_at) " +
+            "VALUES (:accountIndex, :inDebt, :have, :updatedAt) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "total_in_debt = total_in_debt + VALUES(total_in_debt), " +
+            "total_have = total_have + VALUES(total_have), " +
+            "updated_at = VALUES(updated_at)", nativeQuery = true)
+    int addDelta(@Param("accountIndex") String accountIndex,
+                 @Param("inDebt") BigDecimal inDebt,
+                 @Param("have") BigDecimal have,
+                 @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Ghi đè tổng đã tính lại, tạo dòng mới nếu account chưa có (AccountBalanceRebuildJob)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_balance (account_index, total_in_debt, total_have, updated_at) " +
+            "VALUES (:accountIndex, :inDebt, :have, :updatedAt) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "total_in_debt = VALUES(total_in_debt), " +
+            "total_have = VALUES(total_have), " +
+            "updated_at = VALUES(updated_at)", nativeQuery = true)
+    int setTotals(@Param("accountIndex") String accountIndex,
+                  @Param("inDebt") BigDecimal inDebt,
+                  @Param("have") BigDecimal have,
+                  @Param("updatedAt") LocalDateTime updatedAt);
+}
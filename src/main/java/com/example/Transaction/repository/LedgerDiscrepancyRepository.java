@@ -0,0 +1,20 @@
+package com.example.Transaction.repository;
+
+import com.example.Transaction.entity.LedgerDiscrepancy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface LedgerDiscrepancyRepository extends JpaRepository<LedgerDiscrepancy, Long> {
+    /**
+     * Xóa kết quả cũ của một cửa sổ trước khi ghi kết quả đối soát lại, một statement không load entity
+     */
+    @Modifying
+    @Query("DELETE FROM LedgerDiscrepancy d WHERE d.time >= :from AND d.time < :to")
+    int deleteByTimeRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
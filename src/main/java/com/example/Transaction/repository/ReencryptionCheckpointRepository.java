@@ -0,0 +1,9 @@
+package com.example.Transaction.repository;
+
+import com.example.Transaction.entity.ReencryptionCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReencryptionCheckpointRepository extends JpaRepository<ReencryptionCheckpoint, Integer> {
+}
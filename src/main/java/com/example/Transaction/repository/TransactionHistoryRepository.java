@@ -1,12 +1,119 @@
 package com.example.Transaction.repository;
 
+import com.example.Transaction.dto.LedgerLeg;
 import com.example.Transaction.entity.TransactionHistory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionHistoryRepository extends JpaRepository<TransactionHistory, Long> {
     List<TransactionHistory> findByTransactionId(String transactionId);
+
+    /**
+     * Tổng debit / credit của một account, dùng khi rebuild account_balance
+     */
+    interface AccountTotals {
+        String getAccountIndex();
+
+        BigDecimal getTotalInDebt();
+
+        BigDecimal getTotalHave();
+    }
+
+    @Query("SELECT DISTINCT t.accountIndex FROM TransactionHistory t WHERE t.accountIndex IS NOT NULL")
+    List<String> findDistinctAccountIndexes();
+
+    @Query("SELECT t.accountIndex AS accountIndex, SUM(t.inDebt) AS totalInDebt, SUM(t.have) AS totalHave " +
+            "FROM TransactionHistory t WHERE t.accountIndex IN :accountIndexes GROUP BY t.accountIndex")
+    List<AccountTotals> sumByAccountIndexIn(@Param("accountIndexes") Collection<String> accountIndexes);
+
+    /**
+     * ID và account (Base64 sau converter) của một dòng, dùng khi mã hóa lại account
+     */
+    interface AccountCiphertext {
+        Long getId();
+
+        String getAccount();
+    }
+
+    /**
+     * Keyset theo primary key: các dòng có id > afterId, không dùng OFFSET
+     */
+    @Query("SELECT t.id AS id, t.account AS account FROM TransactionHistory t WHERE t.id > :afterId ORDER BY t.id")
+    List<AccountCiphertext> findAccountsAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT MAX(t.id) FROM TransactionHistory t")
+    Long findMaxId();
+
+    // ===== TRA CỨU THEO ACCOUNT - seek trên idx_account_index_time =====
+    /**
+     * Keyset pagination trên (time, id): lấy các dòng sau cursor (afterTime, afterId), không dùng OFFSET
+     * Trang đầu truyền afterTime = from, afterId = 0
+     */
+    @Query("SELECT t FROM TransactionHistory t " +
+            "WHERE t.accountIndex = :accountIndex AND t.time < :to " +
+            "AND (t.time > :afterTime OR (t.time = :afterTime AND t.id > :afterId)) " +
+            "ORDER BY t.time, t.id")
+    List<TransactionHistory> findPageByAccountIndex(@Param("accountIndex") String accountIndex,
+                                                    @Param("afterTime") LocalDateTime afterTime,
+                                                    @Param("afterId") long afterId,
+                                                    @Param("to") LocalDateTime to,
+                                                    Limit limit);
+
+    /**
+     * Stream toàn bộ lịch sử trong khoảng thời gian, phải gọi trong transaction và đóng stream sau khi dùng
+     * MySQL cần useCursorFetch=true để fetch size có hiệu lực, nếu không driver sẽ load cả result set
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM TransactionHistory t " +
+            "WHERE t.accountIndex = :accountIndex AND t.time >= :from AND t.time < :to " +
+            "ORDER BY t.time, t.id")
+    Stream<TransactionHistory> streamByAccountIndex(@Param("accountIndex") String accountIndex,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+
+    /**
+     * Stream các leg trong khoảng thời gian theo idx_time để đối soát, phải gọi trong transaction và đóng stream sau khi dùng
+     * Chỉ đọc các cột cần thiết, fetch size lớn hơn streamByAccountIndex vì mỗi dòng nhỏ
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.example.Transaction.dto.LedgerLeg(t.transactionId, t.inDebt, t.have, t.time) " +
+            "FROM TransactionHistory t WHERE t.time >= :from AND t.time < :to ORDER BY t.time")
+    Stream<LedgerLeg> streamLedgerLegs(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(t.time) FROM TransactionHistory t")
+    LocalDateTime findMinTime();
+
+    /**
+     * Stream các dòng cũ hơn before theo (time, id) để lưu trữ ra file, phải gọi trong transaction và đóng stream sau khi dùng
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM TransactionHistory t WHERE t.time < :before ORDER BY t.time, t.id")
+    Stream<TransactionHistory> streamOlderThan(@Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query("DELETE FROM TransactionHistory t WHERE t.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
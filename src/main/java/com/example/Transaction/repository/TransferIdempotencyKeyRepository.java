@@ -0,0 +1,9 @@
+package com.example.Transaction.repository;
+
+import com.example.Transaction.entity.TransferIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TransferIdempotencyKeyRepository extends JpaRepository<TransferIdempotencyKey, String> {
+}
@@ -0,0 +1,36 @@
+package com.example.Transaction.repository;
+
+import com.example.Transaction.entity.TransferOutbox;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TransferOutboxRepository extends JpaRepository<TransferOutbox, Long> {
+    /**
+     * Các dòng relay chưa publish, dùng idx_outbox_sequence (sequence IS NULL)
+     */
+    List<TransferOutbox> findBySequenceIsNullOrderByIdAsc(Limit limit);
+
+    /**
+     * Keyset theo sequence cho consumer đọc tiếp từ vị trí đã nhận
+     */
+    List<TransferOutbox> findBySequenceGreaterThanOrderBySequenceAsc(long afterSequence, Limit limit);
+
+    @Query("SELECT MAX(o.sequence) FROM TransferOutbox o")
+    Long findMaxSequence();
+
+    /**
+     * Xóa theo từng phần để không giữ lock lâu, chỉ xóa dòng đã publish
+     */
+    @Modifying
+    @Query(value = "DELETE FROM transfer_outbox WHERE sequence IS NOT NULL AND created_at < :before LIMIT :limit",
+            nativeQuery = true)
+    int deletePublishedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,13 @@
+package com.example.Transaction.service;
+
+import com.example.Transaction.dto.request.AccountBalanceRequest;
+import com.example.Transaction.dto.response.AccountBalanceResponse;
+import com.example.Transaction.entity.TransactionHistory;
+
+import java.util.List;
+
+public interface IAccountBalanceService {
+    AccountBalanceResponse getBalance(AccountBalanceRequest request);
+
+    void apply(List<TransactionHistory> legs);
+}
@@ -0,0 +1,22 @@
+package com.example.Transaction.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface IChangeFeedService {
+    enum Format {
+        NDJSON,
+        SSE
+    }
+
+    /**
+     * Báo relay có dòng outbox mới vừa commit
+     */
+    void notifyCommitted();
+
+    /**
+     * Ghi liên tục các giao dịch có sequence > afterSequence ra out cho đến khi client ngắt
+     * hoặc hết thời gian một stream
+     */
+    void tail(long afterSequence, Format format, OutputStream out) throws IOException;
+}
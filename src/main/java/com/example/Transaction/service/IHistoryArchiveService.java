@@ -0,0 +1,45 @@
+package com.example.Transaction.service;
+
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.repository.TransactionHistoryRepository.AccountTotals;
+import com.example.Transaction.util.ArchiveSegment;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+public interface IHistoryArchiveService {
+    /**
+     * Thứ tự đọc lịch sử, giống ORDER BY time, id của transaction_history
+     */
+    Comparator<TransactionHistory> TIME_ORDER =
+            Comparator.comparing(TransactionHistory::getTime).thenComparing(TransactionHistory::getId);
+
+    List<TransactionHistory> findByTransactionId(String transactionId);
+
+    /**
+     * Tối đa limit dòng đã lưu trữ của account sau cursor (afterTime, afterId) và trước to, theo TIME_ORDER
+     */
+    List<TransactionHistory> findPageByAccountIndex(String accountIndex, LocalDateTime afterTime, long afterId,
+                                                    LocalDateTime to, int limit);
+
+    /**
+     * Duyệt các dòng đã lưu trữ của account trong [from, to) theo TIME_ORDER, mỗi lúc chỉ giữ các dòng
+     * của những segment đang được merge
+     */
+    Iterator<TransactionHistory> iterateByAccountIndex(String accountIndex, LocalDateTime from, LocalDateTime to);
+
+    Set<String> findAccountIndexes();
+
+    List<AccountTotals> sumByAccountIndexIn(Collection<String> accountIndexes);
+
+    /**
+     * Đưa segment vừa ghi vào danh sách đọc, trước khi xóa các dòng tương ứng khỏi DB
+     */
+    void register(ArchiveSegment segment);
+
+    List<ArchiveSegment> segments();
+}
@@ -1,11 +1,31 @@
 package com.example.Transaction.service;
 
+import com.example.Transaction.dto.request.TransactionEnvelopeRequest;
+import com.example.Transaction.dto.request.TransactionHistoryRequest;
 import com.example.Transaction.dto.request.TransactionRequest;
+import com.example.Transaction.dto.request.TransactionStatusRequest;
+import com.example.Transaction.dto.response.TransactionHistoryPageResponse;
 import com.example.Transaction.dto.response.TransactionHistoryResponse;
 import com.example.Transaction.dto.response.TransactionResponse;
+import com.example.Transaction.dto.response.TransferResultResponse;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface ITransactionService {
     TransactionResponse processTransfer(TransactionRequest request);
+
+    TransactionResponse processTransfer(TransactionEnvelopeRequest request);
+
+    CompletableFuture<TransactionResponse> submitTransfer(TransactionRequest request);
+
+    List<TransferResultResponse> processTransfers(List<TransactionRequest> requests);
+
+    TransactionResponse getTransaction(TransactionStatusRequest request);
+
+    TransactionHistoryPageResponse getHistory(TransactionHistoryRequest request);
+
+    void exportHistory(TransactionHistoryRequest request, OutputStream out) throws IOException;
 }
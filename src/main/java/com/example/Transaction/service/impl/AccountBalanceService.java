@@ -0,0 +1,79 @@
+package com.example.Transaction.service.impl;
+
+import com.example.Transaction.dto.request.AccountBalanceRequest;
+import com.example.Transaction.dto.response.AccountBalanceResponse;
+import com.example.Transaction.entity.AccountBalance;
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.repository.AccountBalanceRepository;
+import com.example.Transaction.service.IAccountBalanceService;
+import com.example.Transaction.util.BlindIndexUtils;
+import com.example.Transaction.util.RSAUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountBalanceService implements IAccountBalanceService {
+    private final AccountBalanceRepository accountBalanceRepository;
+    private final RSAUtils rsaUtils;
+    private final BlindIndexUtils blindIndexUtils;
+
+    /**
+     * Số dư theo account, đọc một dòng theo primary key
+     * Account chưa có giao dịch trả về số dư 0
+     */
+    @Override
+    public AccountBalanceResponse getBalance(AccountBalanceRequest request) {
+        String account = rsaUtils.decrypt(request.getAccount());
+        AccountBalance balance = accountBalanceRepository.findById(blindIndexUtils.index(account))
+                .orElse(null);
+
+        if (balance == null) {
+            return AccountBalanceResponse.builder()
+                    .account(account)
+                    .totalInDebt(BigDecimal.ZERO)
+                    .totalHave(BigDecimal.ZERO)
+                    .balance(BigDecimal.ZERO)
+                    .build();
+        }
+        return AccountBalanceResponse.builder()
+                .account(account)
+                .totalInDebt(balance.getTotalInDebt())
+                .totalHave(balance.getTotalHave())
+                .balance(balance.getBalance())
+                .updatedAt(balance.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Cộng các leg vừa ghi vào account_balance, phải chạy trong transaction ghi leg
+     * - Gộp delta theo account trước, mỗi account một câu upsert
+     * - Upsert theo thứ tự accountIndex tăng dần: hai giao dịch cùng chạm A và B luôn khóa A trước B, không deadlock
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(List<TransactionHistory> legs) {
+        Map<String, BigDecimal[]> deltas = new TreeMap<>();
+        for (TransactionHistory leg : legs) {
+            BigDecimal[] delta = deltas.computeIfAbsent(leg.getAccountIndex(),
+                    k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            delta[0] = delta[0].add(leg.getInDebt());
+            delta[1] = delta[1].add(leg.getHave());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<String, BigDecimal[]> entry : deltas.entrySet()) {
+            accountBalanceRepository.addDelta(entry.getKey(), entry.getValue()[0], entry.getValue()[1], now);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.Transaction.service.impl;
+
+import com.example.Transaction.dto.response.TransferEventResponse;
+import com.example.Transaction.entity.TransferOutbox;
+import com.example.Transaction.exception.AppException;
+import com.example.Transaction.mapper.TransactionMapper;
+import com.example.Transaction.repository.TransferOutboxRepository;
+import com.example.Transaction.service.IChangeFeedService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Change feed từ transfer_outbox
+ * - Relay (một thread) cấp sequence cho các dòng outbox đã commit theo batch, mỗi batch một transaction,
+ *   rồi đưa vào buffer vòng trong bộ nhớ; chỉ nên bật relay trên một instance (outbox.relay.enabled)
+ * - Consumer tail từ một sequence: trong phạm vi buffer thì đọc bộ nhớ, cũ hơn thì đọc DB theo keyset sequence,
+ *   đã bắt kịp thì chờ relay publish (instance không chạy relay thì đọc lại DB sau mỗi poll interval)
+ * - Backpressure: chỉ lấy batch tiếp theo khi batch trước đã ghi xong ra socket, mỗi consumer giữ tối đa một batch
+ * - Dòng đã publish quá outbox.retention-hours bị xóa bởi thread retention riêng (chạy trên mọi instance, kể cả
+ *   khi relay tắt); consumer resume từ sequence đã bị xóa đọc tiếp từ dòng cũ nhất còn lại
+ * - outbox.enabled=false (mặc định): không ghi outbox, không relay, feed trả 503
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChangeFeedService implements IChangeFeedService {
+    private static final byte[] NEWLINE = {'\n'};
+    private static final byte[] SSE_HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SSE_EVENT = "event: transfer\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int CLEANUP_CHUNK_SIZE = 1000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final TransferOutboxRepository outboxRepository;
+    private final TransactionMapper transactionMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${outbox.enabled}")
+    private boolean outboxEnabled;
+
+    @Value("${outbox.relay.enabled}")
+    private boolean relayEnabled;
+
+    @Value("${outbox.relay.batch-size}")
+    private int relayBatchSize;
+
+    @Value("${outbox.relay.poll-interval-millis}")
+    private long pollIntervalMillis;
+
+    @Value("${outbox.retention-hours}")
+    private long retentionHours;
+
+    @Value("${outbox.cleanup-interval-millis}")
+    private long cleanupIntervalMillis;
+
+    @Value("${feed.buffer-size}")
+    private int bufferSize;
+
+    @Value("${feed.batch-size}")
+    private int feedBatchSize;
+
+    @Value("${feed.max-consumers}")
+    private int maxConsumers;
+
+    @Value("${feed.heartbeat-millis}")
+    private long heartbeatMillis;
+
+    @Value("${feed.max-stream-millis}")
+    private long maxStreamMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+    private final Condition published = lock.newCondition();
+    private volatile boolean pendingCommit;
+
+    // Buffer vòng, sequence liên tục: buffer[bufferStart] là event cũ nhất
+    private TransferEventResponse[] buffer;
+    private int bufferStart;
+    private int bufferCount;
+
+    private Semaphore consumers;
+    private Thread relay;
+    private Thread retention;
+    private volatile boolean closed;
+
+    @PostConstruct
+    void init() {
+        buffer = new TransferEventResponse[bufferSize];
+        consumers = new Semaphore(maxConsumers);
+        if (!outboxEnabled) {
+            if (relayEnabled) {
+                log.warn("outbox.relay.enabled is ignored because outbox.enabled is false");
+            }
+            return;
+        }
+        if (relayEnabled) {
+            relay = new Thread(this::relayLoop, "outbox-relay");
+            relay.setDaemon(true);
+            relay.start();
+        }
+        retention = new Thread(this::retentionLoop, "outbox-retention");
+        retention.setDaemon(true);
+        retention.start();
+    }
+
+    @PreDestroy
+    void close() {
+        closed = true;
+        lock.lock();
+        try {
+            committed.signalAll();
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (retention != null) {
+            retention.interrupt();
+        }
+        try {
+            if (relay != null) {
+                relay.join(SHUTDOWN_TIMEOUT_MILLIS);
+            }
+            if (retention != null) {
+                retention.join(SHUTDOWN_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void notifyCommitted() {
+        if (relay == null || pendingCommit) return;
+        lock.lock();
+        try {
+            pendingCommit = true;
+            committed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void tail(long afterSequence, Format format, OutputStream out) throws IOException {
+        if (!outboxEnabled) {
+            throw new AppException("feed.disabled", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (!consumers.tryAcquire()) {
+            throw new AppException("feed.busy", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        try {
+            long deadline = System.currentTimeMillis() + maxStreamMillis;
+            long lastWrite = System.currentTimeMillis();
+            long after = afterSequence;
+            while (!closed && System.currentTimeMillis() < deadline) {
+                List<TransferEventResponse> events = next(after);
+                if (!events.isEmpty()) {
+                    for (TransferEventResponse event : events) {
+                        write(event, format, out);
+                    }
+                    out.flush();
+                    after = events.get(events.size() - 1).getSequence();
+                    lastWrite = System.currentTimeMillis();
+                } else if (System.currentTimeMillis() - lastWrite >= heartbeatMillis) {
+                    // Giữ kết nối qua proxy và phát hiện client đã ngắt khi không có giao dịch
+                    out.write(format == Format.SSE ? SSE_HEARTBEAT : NEWLINE);
+                    out.flush();
+                    lastWrite = System.currentTimeMillis();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            consumers.release();
+        }
+    }
+
+    /* ========== CONSUMER ========== */
+    private List<TransferEventResponse> next(long after) throws InterruptedException {
+        List<TransferEventResponse> events;
+        lock.lock();
+        try {
+            events = readBuffered(after);
+        } finally {
+            lock.unlock();
+        }
+        if (events == null) {
+            events = readStored(after);
+        }
+        if (events.isEmpty()) {
+            awaitPublished(after);
+        }
+        return events;
+    }
+
+    /**
+     * @return null nếu buffer không chứa event ngay sau after (phải đọc DB)
+     */
+    private List<TransferEventResponse> readBuffered(long after) {
+        if (bufferCount == 0) return null;
+        long first = buffer[bufferStart].getSequence();
+        long last = first + bufferCount - 1;
+        if (after < first - 1) return null;
+        if (after >= last) return List.of();
+
+        int offset = (int) (after + 1 - first);
+        int count = Math.min(feedBatchSize, bufferCount - offset);
+        List<TransferEventResponse> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(buffer[(bufferStart + offset + i) % buffer.length]);
+        }
+        return events;
+    }
+
+    private List<TransferEventResponse> readStored(long after) {
+        return outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(after, Limit.of(feedBatchSize))
+                .stream()
+                .map(transactionMapper::toTransferEvent)
+                .toList();
+    }
+
+    private void awaitPublished(long after) throws InterruptedException {
+        lock.lock();
+        try {
+            boolean behind = bufferCount > 0 && buffer[(bufferStart + bufferCount - 1) % buffer.length].getSequence() > after;
+            if (!behind && !closed) {
+                published.await(pollIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(TransferEventResponse event, Format format, OutputStream out) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(event);
+        if (format == Format.SSE) {
+            out.write(("id: " + event.getSequence() + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(SSE_EVENT);
+            out.write("data: ".getBytes(StandardCharsets.US_ASCII));
+            out.write(json);
+            out.write(NEWLINE);
+            out.write(NEWLINE);
+        } else {
+            out.write(json);
+            out.write(NEWLINE);
+        }
+    }
+
+    /* ========== RELAY ========== */
+    private void relayLoop() {
+        long lastSequence = loadLastSequence();
+        log.info("Outbox relay started at sequence {}", lastSequence);
+
+        while (!closed) {
+            try {
+                List<TransferEventResponse> events = publishBatch(lastSequence);
+                if (!events.isEmpty()) {
+                    lastSequence = events.get(events.size() - 1).getSequence();
+                    append(events);
+                }
+                if (events.size() < relayBatchSize) {
+                    awaitCommitted();
+                }
+            } catch (DataAccessException | TransactionException e) {
+                // Có thể do relay ở instance khác đã cấp cùng sequence: đọc lại vị trí từ DB
+                log.error("Outbox relay failed, will retry", e);
+                sleepQuietly();
+                lastSequence = loadLastSequence();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private long loadLastSequence() {
+        Long max = outboxRepository.findMaxSequence();
+        return max == null ? 0L : max;
+    }
+
+    /**
+     * Các dòng commit muộn (id nhỏ hơn dòng đã publish) vẫn được lấy ở lượt sau và nhận sequence lớn hơn
+     */
+    private List<TransferEventResponse> publishBatch(long lastSequence) {
+        return transactionTemplate.execute(status -> {
+            List<TransferOutbox> rows = outboxRepository.findBySequenceIsNullOrderByIdAsc(Limit.of(relayBatchSize));
+            List<TransferEventResponse> events = new ArrayList<>(rows.size());
+            long sequence = lastSequence;
+            for (TransferOutbox row : rows) {
+                row.setSequence(++sequence);
+                events.add(transactionMapper.toTransferEvent(row));
+            }
+            return events;
+        });
+    }
+
+    private void append(List<TransferEventResponse> events) {
+        lock.lock();
+        try {
+            if (bufferCount > 0) {
+                long last = buffer[(bufferStart + bufferCount - 1) % buffer.length].getSequence();
+                if (events.get(0).getSequence() != last + 1) {
+                    bufferStart = 0;
+                    bufferCount = 0;
+                }
+            }
+            for (TransferEventResponse event : events) {
+                if (bufferCount == buffer.length) {
+                    bufferStart = (bufferStart + 1) % buffer.length;
+                    bufferCount--;
+                }
+                buffer[(bufferStart + bufferCount) % buffer.length] = event;
+                bufferCount++;
+            }
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitCommitted() throws InterruptedException {
+        lock.lock();
+        try {
+            if (!pendingCommit && !closed) {
+                committed.await(pollIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            pendingCommit = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* ========== RETENTION ========== */
+    /**
+     * Chạy độc lập với relay: dòng chưa publish không bao giờ bị xóa, dòng đã publish quá retention thì xóa theo chunk
+     */
+    private void retentionLoop() {
+        while (!closed) {
+            try {
+                cleanup();
+            } catch (DataAccessException | TransactionException e) {
+                log.error("Outbox cleanup failed, will retry", e);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(cleanupIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void cleanup() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status ->
+                    outboxRepository.deletePublishedBefore(before, CLEANUP_CHUNK_SIZE));
+            total += deleted;
+        } while (deleted == CLEANUP_CHUNK_SIZE && !closed);
+        if (total > 0) {
+            log.info("Deleted {} published outbox rows older than {}", total, before);
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
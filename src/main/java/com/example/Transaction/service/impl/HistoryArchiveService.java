@@ -0,0 +1,242 @@
+package com.example.Transaction.service.impl;
+
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.repository.TransactionHistoryRepository.AccountTotals;
+import com.example.Transaction.service.IHistoryArchiveService;
+import com.example.Transaction.util.ArchiveSegment;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Đọc lịch sử đã lưu trữ ra file (HistoryArchiveJob)
+ * - Khi khởi động mở mọi segment trong archive.dir, kể cả segment đang chờ xóa dòng khỏi DB (.seg.tmp hoàn chỉnh)
+ * - Danh sách segment sắp theo minTime, thay bằng bản mới khi thêm (copy-on-write), đọc không khóa
+ * - Một dòng có thể nằm ở cả segment và DB trong lúc job đang xóa, bên gọi merge theo TIME_ORDER và bỏ trùng
+ */
+@Slf4j
+@Service
+public class HistoryArchiveService implements IHistoryArchiveService {
+    public static final String SEGMENT_PREFIX = "history-";
+    public static final String SEGMENT_SUFFIX = ".seg";
+    public static final String PENDING_SUFFIX = ".seg.tmp";
+
+    @Value("${archive.dir}")
+    private String archiveDir;
+
+    private volatile List<ArchiveSegment> segments = List.of();
+
+    @PostConstruct
+    void loadSegments() throws IOException {
+        Path dir = Paths.get(archiveDir);
+        if (!Files.isDirectory(dir)) return;
+
+        List<ArchiveSegment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(SEGMENT_PREFIX)
+                        || !(name.endsWith(SEGMENT_SUFFIX) || name.endsWith(PENDING_SUFFIX))) {
+                    continue;
+                }
+                try {
+                    loaded.add(ArchiveSegment.open(file));
+                } catch (IllegalStateException e) {
+                    // Segment ghi dở khi crash, HistoryArchiveJob sẽ xóa
+                    log.warn("Skipping archive segment {}: {}", file.getFileName(), e.getMessage());
+                }
+            }
+        }
+        loaded.sort(Comparator.comparing(ArchiveSegment::getMinTime));
+        segments = List.copyOf(loaded);
+        log.info("Loaded {} archive segments, {} rows", loaded.size(),
+                loaded.stream().mapToLong(ArchiveSegment::getRowCount).sum());
+    }
+
+    @Override
+    public synchronized void register(ArchiveSegment segment) {
+        List<ArchiveSegment> updated = new ArrayList<>(segments);
+        updated.removeIf(existing -> existing.getPath().getFileName().toString()
+                .startsWith(baseName(segment.getPath())));
+        updated.add(segment);
+        updated.sort(Comparator.comparing(ArchiveSegment::getMinTime));
+        segments = List.copyOf(updated);
+    }
+
+    @Override
+    public List<ArchiveSegment> segments() {
+        return segments;
+    }
+
+    @Override
+    public List<TransactionHistory> findByTransactionId(String transactionId) {
+        for (ArchiveSegment segment : segments) {
+            List<TransactionHistory> rows = segment.findByTransactionId(transactionId);
+            if (!rows.isEmpty()) {
+                return rows;
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Duyệt segment theo minTime, dừng khi đã đủ limit dòng và segment tiếp theo bắt đầu sau dòng thứ limit
+     */
+    @Override
+    public List<TransactionHistory> findPageByAccountIndex(String accountIndex, LocalDateTime afterTime, long afterId,
+                                                           LocalDateTime to, int limit) {
+        List<TransactionHistory> page = new ArrayList<>();
+        for (ArchiveSegment segment : segments) {
+            if (page.size() >= limit && segment.getMinTime().isAfter(page.get(limit - 1).getTime())) break;
+            if (!segment.overlaps(afterTime, to)) continue;
+
+            for (TransactionHistory row : segment.findByAccountIndex(accountIndex, afterTime, to)) {
+                if (row.getTime().isAfter(afterTime) || row.getId() > afterId) {
+                    page.add(row);
+                }
+            }
+            page.sort(TIME_ORDER);
+            if (page.size() > limit) {
+                page = new ArrayList<>(page.subList(0, limit));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Iterator<TransactionHistory> iterateByAccountIndex(String accountIndex, LocalDateTime from, LocalDateTime to) {
+        List<ArchiveSegment> candidates = segments.stream()
+                .filter(segment -> segment.overlaps(from, to))
+                .toList();
+        return new SegmentMergeIterator(candidates, segment -> segment.findByAccountIndex(accountIndex, from, to));
+    }
+
+    @Override
+    public Set<String> findAccountIndexes() {
+        Set<String> accountIndexes = new HashSet<>();
+        for (ArchiveSegment segment : segments) {
+            segment.forEachAccountIndex(accountIndexes::add);
+        }
+        return accountIndexes;
+    }
+
+    @Override
+    public List<AccountTotals> sumByAccountIndexIn(Collection<String> accountIndexes) {
+        List<ArchiveSegment> current = segments;
+        List<AccountTotals> totals = new ArrayList<>(accountIndexes.size());
+        for (String accountIndex : accountIndexes) {
+            long[] units = new long[2];
+            for (ArchiveSegment segment : current) {
+                segment.addTotals(accountIndex, units);
+            }
+            totals.add(new ArchivedTotals(accountIndex,
+                    ArchiveSegment.toAmount(units[0]), ArchiveSegment.toAmount(units[1])));
+        }
+        return totals;
+    }
+
+    /**
+     * "history-000...001" cho cả file .seg và .seg.tmp
+     */
+    private static String baseName(Path path) {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.indexOf(SEGMENT_SUFFIX));
+    }
+
+    private record ArchivedTotals(String accountIndex, BigDecimal totalInDebt, BigDecimal totalHave)
+            implements AccountTotals {
+        @Override
+        public String getAccountIndex() {
+            return accountIndex;
+        }
+
+        @Override
+        public BigDecimal getTotalInDebt() {
+            return totalInDebt;
+        }
+
+        @Override
+        public BigDecimal getTotalHave() {
+            return totalHave;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SegmentReader {
+        List<TransactionHistory> read(ArchiveSegment segment);
+    }
+
+    /**
+     * K-way merge theo TIME_ORDER giữa các segment (có thể chồng khoảng thời gian)
+     * Segment chỉ được đọc khi minTime của nó không sau dòng nhỏ nhất đang chờ trả về
+     */
+    private static final class SegmentMergeIterator implements Iterator<TransactionHistory> {
+        private final List<ArchiveSegment> candidates;
+        private final SegmentReader reader;
+        private final PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> TIME_ORDER.compare(a.head, b.head));
+        private int nextSegment;
+
+        private static final class Cursor {
+            private final Iterator<TransactionHistory> rows;
+            private TransactionHistory head;
+
+            Cursor(Iterator<TransactionHistory> rows) {
+                this.rows = rows;
+                this.head = rows.next();
+            }
+        }
+
+        SegmentMergeIterator(List<ArchiveSegment> candidates, SegmentReader reader) {
+            this.candidates = candidates;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            openSegments();
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public TransactionHistory next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Cursor cursor = queue.poll();
+            TransactionHistory row = cursor.head;
+            if (cursor.rows.hasNext()) {
+                cursor.head = cursor.rows.next();
+                queue.add(cursor);
+            }
+            return row;
+        }
+
+        private void openSegments() {
+            while (nextSegment < candidates.size()
+                    && (queue.isEmpty() || !candidates.get(nextSegment).getMinTime().isAfter(queue.peek().head.getTime()))) {
+                Iterator<TransactionHistory> rows = reader.read(candidates.get(nextSegment++)).iterator();
+                if (rows.hasNext()) {
+                    queue.add(new Cursor(rows));
+                }
+            }
+        }
+    }
+}
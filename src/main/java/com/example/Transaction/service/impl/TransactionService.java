@@ -1,23 +1,88 @@
 package com.example.Transaction.service.impl;
 
 import com.example.Transaction.config.Translator;
+import com.example.Transaction.dto.StoredTransfer;
+import com.example.Transaction.dto.TransferCommand;
+import com.example.Transaction.dto.request.TransactionEnvelopePayload;
+import com.example.Transaction.dto.request.TransactionEnvelopeRequest;
+import com.example.Transaction.dto.request.TransactionHistoryRequest;
 import com.example.Transaction.dto.request.TransactionRequest;
+import com.example.Transaction.dto.request.TransactionStatusRequest;
+import com.example.Transaction.dto.response.TransactionHistoryPageResponse;
+import com.example.Transaction.dto.response.TransactionHistoryResponse;
 import com.example.Transaction.dto.response.TransactionResponse;
+import com.example.Transaction.dto.response.TransferResultResponse;
 import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.entity.TransferIdempotencyKey;
+import com.example.Transaction.entity.TransferOutbox;
+import com.example.Transaction.exception.AppException;
 import com.example.Transaction.exception.TransactionProcessingException;
+import com.example.Transaction.metrics.TransferMetrics;
+import com.example.Transaction.metrics.TransferMetrics.FailureReason;
+import com.example.Transaction.metrics.TransferMetrics.Stage;
+import com.example.Transaction.mapper.TransactionMapper;
 import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.repository.TransferIdempotencyKeyRepository;
+import com.example.Transaction.repository.TransferOutboxRepository;
+import com.example.Transaction.service.IAccountBalanceService;
+import com.example.Transaction.service.IChangeFeedService;
+import com.example.Transaction.service.IHistoryArchiveService;
 import com.example.Transaction.service.ITransactionService;
 import com.example.Transaction.util.AESUtils;
+import com.example.Transaction.util.BlindIndexUtils;
+import com.example.Transaction.util.EnvelopeUtils;
+import com.example.Transaction.util.MergingIterator;
 import com.example.Transaction.util.RSAUtils;
+import com.example.Transaction.util.SegmentJournal;
 import com.example.Transaction.util.SensitiveDataMasker;
+import com.example.Transaction.util.ShardedSequencer;
+import com.example.Transaction.util.QueueLimitedExecutor;
+import com.example.Transaction.util.ShardedSequencer.Task;
+import com.example.Transaction.util.TransactionIdFilter;
+import com.example.Transaction.util.TransferLookupCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -25,82 +90,817 @@ import java.time.format.DateTimeFormatter;
 public class TransactionService implements ITransactionService {
     private static final BigDecimal ZERO_AMOUNT = BigDecimal.ZERO;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final int DECRYPT_CHUNK_SIZE = 64;
+    private static final byte NEWLINE = '\n';
 
     private final TransactionHistoryRepository transactionHistoryRepository;
+    private final TransferIdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransferOutboxRepository outboxRepository;
+    private final TransactionIdFilter transactionIdFilter;
+    private final TransferLookupCache lookupCache;
+    private final TransactionMapper transactionMapper;
+    private final IAccountBalanceService accountBalanceService;
+    private final IChangeFeedService changeFeedService;
+    private final IHistoryArchiveService historyArchiveService;
     private final AESUtils aesUtils;
+    private final BlindIndexUtils blindIndexUtils;
     private final RSAUtils rsaUtils;
+    private final EnvelopeUtils envelopeUtils;
     private final SensitiveDataMasker masker;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService cryptoExecutor;
+    private final ExecutorService dbExecutor;
+    private final TransferMetrics transferMetrics;
+    private final EntityManager entityManager;
+
+    @Value("${sequencer.enabled}")
+    private boolean sequencerEnabled;
+
+    @Value("${sequencer.shards}")
+    private int sequencerShards;
+
+    @Value("${sequencer.max-batch-size}")
+    private int sequencerMaxBatchSize;
+
+    @Value("${sequencer.queue-capacity}")
+    private int sequencerQueueCapacity;
+
+    @Value("${journal.enabled}")
+    private boolean journalEnabled;
+
+    @Value("${journal.dir}")
+    private String journalDir;
+
+    @Value("${journal.segment-size}")
+    private long journalSegmentSize;
+
+    @Value("${journal.drain-interval-millis}")
+    private long journalDrainIntervalMillis;
+
+    @Value("${journal.drain-batch-size}")
+    private int journalDrainBatchSize;
+
+    @Value("${outbox.enabled}")
+    private boolean outboxEnabled;
+
+    @Value("${transfer.async.crypto-queue-limit}")
+    private int asyncCryptoQueueLimit;
+
+    @Value("${transfer.async.db-queue-limit}")
+    private int asyncDbQueueLimit;
+
+    private ShardedSequencer<PreparedTransfer, TransactionResponse> sequencer;
+    private SegmentJournal journal;
+    private Executor asyncCryptoStage;
+    private Executor asyncDbStage;
+
+    /**
+     * Các chế độ ghi, mặc định ghi DB trực tiếp
+     * - Sequencer: giao dịch chia shard theo account nguồn, mỗi shard một thread ghi theo batch;
+     *   giao dịch dồn vào account nóng được gộp vào ít transaction thay vì tranh row lock từng cái
+     * - Journal (ưu tiên hơn sequencer): ack khi đã fsync vào journal cục bộ (group commit),
+     *   drainer ghi vào transaction_history theo batch lớn; lịch sử / số dư thấy giao dịch sau khi drain.
+     *   Journal không chứa account plain text, chỉ bản AES và blind index
+     */
+    @PostConstruct
+    void initWriters() throws IOException {
+        asyncCryptoStage = new QueueLimitedExecutor("transfer-crypto", cryptoExecutor, asyncCryptoQueueLimit);
+        asyncDbStage = new QueueLimitedExecutor("transfer-db", dbExecutor, asyncDbQueueLimit);
+        if (sequencerEnabled) {
+            sequencer = new ShardedSequencer<>("transfer-writer-", sequencerShards,
+                    sequencerMaxBatchSize, sequencerQueueCapacity, this::writeSequenced);
+        }
+        if (journalEnabled) {
+            journal = new SegmentJournal(Paths.get(journalDir), journalSegmentSize,
+                    journalDrainIntervalMillis, journalDrainBatchSize, this::applyJournaled);
+        }
+    }
+
+    @PreDestroy
+    void closeWriters() {
+        if (journal != null) {
+            journal.close();
+        }
+        if (sequencer != null) {
+            sequencer.close();
+        }
+    }
 
     /**
      * Xử lý giao dịch chuyển khoản
      * - Client gửi plain text
      * - AES mã hóa account trước khi lưu DB
      * - HTTPS đảm bảo an toàn khi truyền dữ liệu
+     * - Giải mã / mã hóa chạy ngoài transaction, chỉ giữ connection khi ghi DB
+     * - Idempotent: transactionId đã ghi thì trả lại kết quả cũ, chỉ tốn một lần RSA decrypt
      */
     @Override
-    @Transactional
     public TransactionResponse processTransfer(TransactionRequest request) {
         try {
-            // ===== RSA DECRYPT =====
+            long start = System.nanoTime();
             String transactionId = rsaUtils.decrypt(request.getTransactionId());
-            String sourceAccount = rsaUtils.decrypt(request.getSourceAccount());
-            String destAccount = rsaUtils.decrypt(request.getDestAccount());
+            Optional<TransactionResponse> original = findOriginal(transactionId);
+            if (original.isPresent()) {
+                return original.get();
+            }
+            return execute(decrypt(request, transactionId, start));
+        } catch (RejectedExecutionException e) {
+            throw overloaded(e);
+        } catch (Exception e) {
+            transferMetrics.recordFailure(e);
+            log.error("Transaction failed", e);
+            throw new TransactionProcessingException(
+                    Translator.toLocale("transaction.failed"));
+        }
+    }
 
-            BigDecimal amount = new BigDecimal(
-                    rsaUtils.decrypt(request.getAmount())
-            );
+    /**
+     * Chuyển khoản bất đồng bộ, mỗi giao dịch một future, không giữ thread gọi
+     * - Giải mã / mã hóa trên cryptoExecutor, đọc / ghi DB trên dbExecutor (hoặc journal / sequencer nếu bật)
+     * - Mỗi stage giới hạn số task chờ (transfer.async.*-queue-limit), vượt thì lỗi 503 thay vì xếp hàng thêm
+     * - Lỗi khác: TransactionProcessingException như processTransfer
+     */
+    @Override
+    public CompletableFuture<TransactionResponse> submitTransfer(TransactionRequest request) {
+        return supply(() -> {
+                    long start = System.nanoTime();
+                    String transactionId = rsaUtils.decrypt(request.getTransactionId());
+                    if (!transactionIdFilter.mightContain(transactionId)) {
+                        return writeAsync(prepare(decrypt(request, transactionId, start)));
+                    }
+                    // Có thể trùng: tra DB trên dbExecutor, giao dịch mới thì quay lại cryptoExecutor
+                    return supply(() -> findStored(transactionId), asyncDbStage)
+                            .thenCompose(original -> original.isPresent()
+                                    ? CompletableFuture.completedFuture(original.get())
+                                    : supply(() -> prepare(decrypt(request, transactionId, System.nanoTime())), asyncCryptoStage)
+                                    .thenCompose(this::writeAsync));
+                }, asyncCryptoStage)
+                .thenCompose(Function.identity())
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof RejectedExecutionException rejected) {
+                        throw overloaded(rejected);
+                    }
+                    transferMetrics.recordFailure(cause);
+                    log.error("Transaction failed", cause);
+                    throw new TransactionProcessingException(
+                            Translator.toLocale("transaction.failed"));
+                });
+    }
 
-            LocalDateTime time = request.getTime() == null
-                    ? LocalDateTime.now()
-                    : LocalDateTime.parse(
-                    rsaUtils.decrypt(request.getTime()), FORMATTER);
+    /**
+     * Queue của executor hoặc shard sequencer đầy: 503 để client thử lại sau, không chờ thêm
+     */
+    private AppException overloaded(RejectedExecutionException e) {
+        transferMetrics.recordFailure(e);
+        log.warn("Transfer rejected: {}", e.getMessage());
+        return new AppException("transaction.overloaded", HttpStatus.SERVICE_UNAVAILABLE);
+    }
 
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                throw new IllegalArgumentException(
-                        Translator.toLocale("transaction.amount.invalid"));
+    /**
+     * Journal / sequencer đã bất đồng bộ sẵn, chỉ ghi trực tiếp mới chiếm một thread của dbExecutor
+     */
+    private CompletableFuture<TransactionResponse> writeAsync(PreparedTransfer prepared) {
+        if (journal != null || sequencer != null) {
+            return submitWrite(prepared);
+        }
+        return supply(() -> writeOne(prepared), asyncDbStage);
+    }
+
+    private static <T> CompletableFuture<T> supply(Supplier<T> task, Executor executor) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Xử lý giao dịch dạng envelope
+     * - Chỉ một lần RSA unwrap session key, payload giải mã bằng AES-GCM
+     */
+    @Override
+    public TransactionResponse processTransfer(TransactionEnvelopeRequest request) {
+        try {
+            TransferCommand command = decrypt(request);
+            Optional<TransactionResponse> original = findOriginal(command.getTransactionId());
+            if (original.isPresent()) {
+                return original.get();
             }
+            return execute(command);
+        } catch (RejectedExecutionException e) {
+            throw overloaded(e);
+        } catch (Exception e) {
+            transferMetrics.recordFailure(e);
+            log.error("Transaction failed", e);
+            throw new TransactionProcessingException(
+                    Translator.toLocale("transaction.failed"));
+        }
+    }
 
-            masker.logSafely(
-                    "Processing TxID={}, From={}, To={}, Amount={}, Time={}",
-                    transactionId, sourceAccount, destAccount, amount, time
-            );
+    /**
+     * Xử lý batch giao dịch
+     * - Giải mã / mã hóa song song trên cryptoExecutor
+     * - Ghi toàn bộ các leg trong một transaction (JDBC batch)
+     * - Nếu ghi batch lỗi thì ghi lại từng giao dịch riêng để một item lỗi không kéo theo cả batch
+     * - transactionId đã ghi (kể cả trùng trong cùng batch) trả lại kết quả cũ
+     */
+    @Override
+    public List<TransferResultResponse> processTransfers(List<TransactionRequest> requests) {
+        List<CompletableFuture<PreparedTransfer>> futures = new ArrayList<>(requests.size());
+        for (TransactionRequest request : requests) {
+            futures.add(CompletableFuture.supplyAsync(() -> prepare(decrypt(request)), cryptoExecutor));
+        }
+
+        TransferResultResponse[] results = new TransferResultResponse[requests.size()];
+        List<Integer> preparedIndexes = new ArrayList<>(requests.size());
+        List<PreparedTransfer> prepared = new ArrayList<>(requests.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                PreparedTransfer transfer = futures.get(i).join();
+                Optional<TransactionResponse> original = findOriginal(transfer.command().getTransactionId());
+                if (original.isPresent()) {
+                    results[i] = TransferResultResponse.success(i, original.get());
+                    continue;
+                }
+                prepared.add(transfer);
+                preparedIndexes.add(i);
+            } catch (CompletionException e) {
+                transferMetrics.recordFailure(e.getCause());
+                log.error("Batch item {} failed", i, e.getCause());
+                results[i] = TransferResultResponse.failure(i, Translator.toLocale("transaction.failed"));
+            }
+        }
+
+        if (!prepared.isEmpty() && !writeBatch(prepared)) {
+            for (int k = 0; k < prepared.size(); k++) {
+                int index = preparedIndexes.get(k);
+                if (!writeBatch(List.of(prepared.get(k)))) {
+                    Optional<TransactionResponse> original = findStored(prepared.get(k).command().getTransactionId());
+                    if (original.isPresent()) {
+                        results[index] = TransferResultResponse.success(index, original.get());
+                    } else {
+                        transferMetrics.recordFailure(FailureReason.DB_WRITE);
+                        results[index] = TransferResultResponse.failure(index, Translator.toLocale("transaction.failed"));
+                    }
+                }
+            }
+        }
+
+        for (int k = 0; k < prepared.size(); k++) {
+            int index = preparedIndexes.get(k);
+            if (results[index] == null) {
+                results[index] = TransferResultResponse.success(index, prepared.get(k).response());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Tra cứu giao dịch theo transactionId
+     * - Đọc qua TransferLookupCache (account bản AES), chỉ giải mã hai account khi dựng response
+     * - Miss thì đọc DB rồi archive, kết quả (kể cả "không có") được cache
+     */
+    @Override
+    public TransactionResponse getTransaction(TransactionStatusRequest request) {
+        String transactionId = rsaUtils.decrypt(request.getTransactionId());
+        StoredTransfer stored = lookupCache.get(transactionId);
+        if (stored == null) {
+            stored = loadStored(transactionId);
+        }
+        if (stored == TransferLookupCache.NOT_FOUND) {
+            throw new AppException("transaction.not.found", HttpStatus.NOT_FOUND);
+        }
+        return transactionMapper.toTransactionResponse(stored);
+    }
+
+    /**
+     * Lịch sử giao dịch theo account, keyset pagination trên (time, id)
+     * - Tìm bằng blind index, chỉ giải mã các dòng của trang trả về
+     * - Lấy size + 1 dòng để biết còn trang sau hay không
+     * - Dòng đã lưu trữ ra segment file (HistoryArchiveService) được gộp vào theo cùng thứ tự
+     */
+    @Override
+    public TransactionHistoryPageResponse getHistory(TransactionHistoryRequest request) {
+        String accountIndex = blindIndexUtils.index(rsaUtils.decrypt(request.getAccount()));
+        int size = request.getSize() == null ? TransactionHistoryRequest.DEFAULT_PAGE_SIZE : request.getSize();
+        HistoryCursor after = HistoryCursor.decode(request.getCursor(), request.getFrom());
+
+        List<TransactionHistory> rows = mergePage(
+                transactionHistoryRepository.findPageByAccountIndex(
+                        accountIndex, after.time(), after.id(), request.getTo(), Limit.of(size + 1)),
+                historyArchiveService.findPageByAccountIndex(
+                        accountIndex, after.time(), after.id(), request.getTo(), size + 1),
+                size + 1);
+        boolean hasNext = rows.size() > size;
+        List<TransactionHistory> page = hasNext ? rows.subList(0, size) : rows;
+
+        return TransactionHistoryPageResponse.builder()
+                .items(toHistoryResponses(page))
+                .nextCursor(hasNext ? HistoryCursor.of(page.get(size - 1)).encode() : null)
+                .build();
+    }
+
+    /**
+     * Xuất toàn bộ lịch sử dạng NDJSON, bộ nhớ không phụ thuộc số dòng
+     * - Đọc bằng stream (fetch size cố định), giải mã và ghi ra theo từng batch
+     * - Sau mỗi batch clear persistence context để entity đã xuất được GC
+     * - Merge với các dòng đã lưu trữ theo (time, id), archive chỉ giữ các dòng của account trong segment đang đọc
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportHistory(TransactionHistoryRequest request, OutputStream out) throws IOException {
+        String accountIndex = blindIndexUtils.index(rsaUtils.decrypt(request.getAccount()));
+        List<TransactionHistory> batch = new ArrayList<>(EXPORT_BATCH_SIZE);
+
+        try (Stream<TransactionHistory> rows = transactionHistoryRepository.streamByAccountIndex(
+                accountIndex, request.getFrom(), request.getTo())) {
+            Iterator<TransactionHistory> iterator = new MergingIterator<>(
+                    historyArchiveService.iterateByAccountIndex(accountIndex, request.getFrom(), request.getTo()),
+                    rows.iterator(),
+                    IHistoryArchiveService.TIME_ORDER);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == EXPORT_BATCH_SIZE) {
+                    writeNdjson(batch, out);
+                }
+            }
+            writeNdjson(batch, out);
+        }
+    }
+
+    /**
+     * Gộp trang từ DB và archive theo (time, id), dòng có ở cả hai nguồn (đang lưu trữ) chỉ lấy một lần
+     */
+    private static List<TransactionHistory> mergePage(List<TransactionHistory> stored, List<TransactionHistory> archived,
+                                                      int limit) {
+        if (archived.isEmpty()) return stored;
+        List<TransactionHistory> merged = new ArrayList<>(limit);
+        new MergingIterator<>(archived.iterator(), stored.iterator(), IHistoryArchiveService.TIME_ORDER)
+                .forEachRemaining(row -> {
+                    if (merged.size() < limit) merged.add(row);
+                });
+        return merged;
+    }
+
+    private void writeNdjson(List<TransactionHistory> batch, OutputStream out) throws IOException {
+        for (TransactionHistoryResponse response : toHistoryResponses(batch)) {
+            out.write(objectMapper.writeValueAsBytes(response));
+            out.write(NEWLINE);
+        }
+        out.flush();
+        batch.clear();
+        entityManager.clear();
+    }
+
+    /**
+     * AES giải mã account song song trên cryptoExecutor, giữ nguyên thứ tự
+     * Mỗi task giải mã một chunk với một cipher context
+     */
+    private List<TransactionHistoryResponse> toHistoryResponses(List<TransactionHistory> rows) {
+        if (rows.size() <= DECRYPT_CHUNK_SIZE) {
+            return transactionMapper.toHistoryResponses(rows);
+        }
+        List<CompletableFuture<List<TransactionHistoryResponse>>> futures = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += DECRYPT_CHUNK_SIZE) {
+            List<TransactionHistory> chunk = rows.subList(from, Math.min(from + DECRYPT_CHUNK_SIZE, rows.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> transactionMapper.toHistoryResponses(chunk), cryptoExecutor));
+        }
+        List<TransactionHistoryResponse> responses = new ArrayList<>(rows.size());
+        for (CompletableFuture<List<TransactionHistoryResponse>> future : futures) {
+            responses.addAll(future.join());
+        }
+        return responses;
+    }
+
+    private boolean writeBatch(List<PreparedTransfer> batch) {
+        long start = System.nanoTime();
+        try {
+            write(batch);
+            transferMetrics.record(Stage.BATCH_WRITE, start);
+            return true;
+        } catch (DataAccessException | TransactionException e) {
+            log.error("Batch write of {} transfers failed", batch.size(), e);
+            return false;
+        }
+    }
+
+    // ===== RSA DECRYPT - mỗi field một lần =====
+    private TransferCommand decrypt(TransactionRequest request) {
+        long start = System.nanoTime();
+        return decrypt(request, rsaUtils.decrypt(request.getTransactionId()), start);
+    }
+
+    private TransferCommand decrypt(TransactionRequest request, String transactionId, long start) {
+        String sourceAccount = rsaUtils.decrypt(request.getSourceAccount());
+        String destAccount = rsaUtils.decrypt(request.getDestAccount());
+        String amount = rsaUtils.decrypt(request.getAmount());
+        String time = request.getTime() == null ? null : rsaUtils.decrypt(request.getTime());
+        transferMetrics.record(Stage.RSA_DECRYPT, start);
+
+        return toCommand(transactionId, sourceAccount, destAccount, amount, time);
+    }
+
+    // ===== ENVELOPE DECRYPT - một lần RSA cho cả request =====
+    private TransferCommand decrypt(TransactionEnvelopeRequest request) throws IOException {
+        long start = System.nanoTime();
+        TransactionEnvelopePayload payload = objectMapper.readValue(
+                envelopeUtils.open(request), TransactionEnvelopePayload.class);
+        transferMetrics.record(Stage.ENVELOPE_DECRYPT, start);
+        return toCommand(
+                payload.getTransactionId(),
+                payload.getSourceAccount(),
+                payload.getDestAccount(),
+                payload.getAmount(),
+                payload.getTime()
+        );
+    }
 
-            // ===== AES ENCRYPT FOR DB =====
-            String encryptedSource = aesUtils.encryptForDB(sourceAccount);
-            String encryptedDest = aesUtils.encryptForDB(destAccount);
+    private TransferCommand toCommand(String transactionId, String sourceAccount, String destAccount,
+                                      String amountText, String timeText) {
+        long start = System.nanoTime();
+        BigDecimal amount = new BigDecimal(amountText);
 
-            // ===== SAVE DEBIT =====
-            transactionHistoryRepository.save(TransactionHistory.builder()
-                    .transactionId(transactionId)
+        LocalDateTime time = timeText == null
+                ? LocalDateTime.now()
+                : LocalDateTime.parse(timeText, FORMATTER);
+
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException(
+                    Translator.toLocale("transaction.amount.invalid"));
+        }
+
+        TransferCommand command = TransferCommand.builder()
+                .transactionId(transactionId)
+                .sourceAccount(sourceAccount)
+                .destAccount(destAccount)
+                .amount(amount)
+                .time(time)
+                .build();
+        transferMetrics.record(Stage.PARSE, start);
+        return command;
+    }
+
+    /**
+     * Phần CPU-bound trước khi ghi DB: log an toàn + AES mã hóa account + blind index
+     */
+    private PreparedTransfer prepare(TransferCommand command) {
+        long start = System.nanoTime();
+        masker.logSafely(
+                "Processing TxID={}, From={}, To={}, Amount={}, Time={}",
+                command.getTransactionId(), command.getSourceAccount(), command.getDestAccount(),
+                command.getAmount(), command.getTime()
+        );
+        transferMetrics.record(Stage.MASK_LOG, start);
+
+        // ===== AES ENCRYPT FOR DB =====
+        start = System.nanoTime();
+        String encryptedSource = aesUtils.encryptForDB(command.getSourceAccount());
+        String encryptedDest = aesUtils.encryptForDB(command.getDestAccount());
+        transferMetrics.record(Stage.AES_ENCRYPT, start);
+
+        // ===== BLIND INDEX FOR LOOKUP =====
+        start = System.nanoTime();
+        String sourceIndex = blindIndexUtils.index(command.getSourceAccount());
+        String destIndex = blindIndexUtils.index(command.getDestAccount());
+        transferMetrics.record(Stage.BLIND_INDEX, start);
+
+        return new PreparedTransfer(command, encryptedSource, encryptedDest, sourceIndex, destIndex);
+    }
+
+    /**
+     * Crypto xong mới ghi: vào journal nếu bật, không thì ghi DB (qua sequencer nếu bật)
+     */
+    private TransactionResponse execute(TransferCommand command) {
+        PreparedTransfer prepared = prepare(command);
+        if (journal == null && sequencer == null) {
+            return writeOne(prepared);
+        }
+        try {
+            return submitWrite(prepared).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private CompletableFuture<TransactionResponse> submitWrite(PreparedTransfer prepared) {
+        if (journal != null) {
+            long start = System.nanoTime();
+            return journal.append(prepared.toJournalRecord()).thenApply(durable -> {
+                transferMetrics.record(Stage.JOURNAL_APPEND, start);
+                transactionIdFilter.put(prepared.command().getTransactionId());
+                lookupCache.put(prepared.stored());
+                return prepared.response();
+            });
+        }
+        if (sequencer != null) {
+            return sequencer.submit(prepared.sourceIndex(), prepared);
+        }
+        return CompletableFuture.completedFuture(writeOne(prepared));
+    }
+
+    /**
+     * Applier của journal: ghi batch, lỗi thì ghi từng giao dịch
+     * Giao dịch đã ghi trước khi crash (replay) bị unique constraint chặn và chỉ bỏ qua khi dòng đã lưu khớp với record;
+     * không khớp (vi phạm constraint khác, hoặc transactionId trùng của giao dịch khác) thì ném exception
+     * để journal dừng drain và giữ segment, không làm mất giao dịch đã ack
+     */
+    private void applyJournaled(List<byte[]> records) {
+        List<PreparedTransfer> batch = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+            batch.add(PreparedTransfer.fromJournalRecord(record));
+        }
+        if (writeBatch(batch)) return;
+
+        for (PreparedTransfer transfer : batch) {
+            try {
+                write(List.of(transfer));
+            } catch (DataIntegrityViolationException e) {
+                String transactionId = transfer.command().getTransactionId();
+                if (!matchesStored(transfer)) {
+                    throw new IllegalStateException("Journaled transfer " + masker.mask(transactionId)
+                            + " conflicts with stored data", e);
+                }
+                log.info("Journaled transfer already applied, TxID={}", masker.mask(transactionId));
+            }
+        }
+    }
+
+    /**
+     * So sánh account đã giải mã (bản AES khác nhau nếu dòng đã được mã hóa lại bằng key mới) và amount
+     */
+    private boolean matchesStored(PreparedTransfer transfer) {
+        Optional<TransactionResponse> stored = findStored(transfer.command().getTransactionId());
+        if (stored.isEmpty()) {
+            return false;
+        }
+        TransactionResponse journaled = transactionMapper.toTransactionResponse(transfer.stored());
+        TransactionResponse original = stored.get();
+        return journaled.getSourceAccount().equals(original.getSourceAccount())
+                && journaled.getDestAccount().equals(original.getDestAccount())
+                && journaled.getAmount().compareTo(original.getAmount()) == 0;
+    }
+
+    /**
+     * Một giao dịch một transaction, chỉ gồm các INSERT và cập nhật số dư
+     * Ghi trùng do request song song bị unique constraint chặn, trả lại kết quả của request ghi trước
+     */
+    private TransactionResponse writeOne(PreparedTransfer prepared) {
+        TransferCommand command = prepared.command();
+        long start = System.nanoTime();
+        try {
+            write(List.of(prepared));
+        } catch (DataIntegrityViolationException e) {
+            return findStored(command.getTransactionId()).orElseThrow(() -> e);
+        }
+        transferMetrics.record(Stage.DB_WRITE, start);
+        return prepared.response();
+    }
+
+    /**
+     * Writer của sequencer: cả batch trong một transaction, lỗi thì ghi lại từng giao dịch
+     */
+    private void writeSequenced(List<Task<PreparedTransfer, TransactionResponse>> tasks) {
+        if (tasks.size() > 1) {
+            List<PreparedTransfer> batch = new ArrayList<>(tasks.size());
+            for (Task<PreparedTransfer, TransactionResponse> task : tasks) {
+                batch.add(task.item());
+            }
+            if (writeBatch(batch)) {
+                for (Task<PreparedTransfer, TransactionResponse> task : tasks) {
+                    task.future().complete(task.item().response());
+                }
+                return;
+            }
+        }
+
+        for (Task<PreparedTransfer, TransactionResponse> task : tasks) {
+            try {
+                task.future().complete(writeOne(task.item()));
+            } catch (RuntimeException e) {
+                task.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Idempotency key, hai leg, outbox (khi outbox.enabled) và số dư trong cùng một transaction
+     * Commit xong mới đưa vào lookup cache
+     */
+    private void write(List<PreparedTransfer> batch) {
+        List<TransferIdempotencyKey> keys = new ArrayList<>(batch.size());
+        List<TransactionHistory> legs = new ArrayList<>(batch.size() * 2);
+        List<TransferOutbox> outbox = new ArrayList<>(batch.size());
+        for (PreparedTransfer transfer : batch) {
+            keys.add(transfer.idempotencyKey());
+            legs.addAll(transfer.legs());
+            if (outboxEnabled) {
+                outbox.add(transfer.outbox());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            idempotencyKeyRepository.saveAll(keys);
+            transactionHistoryRepository.saveAll(legs);
+            if (!outbox.isEmpty()) {
+                outboxRepository.saveAll(outbox);
+            }
+            accountBalanceService.apply(legs);
+        });
+        for (PreparedTransfer transfer : batch) {
+            transactionIdFilter.put(transfer.command().getTransactionId());
+            lookupCache.put(transfer.stored());
+        }
+        if (outboxEnabled) {
+            changeFeedService.notifyCommitted();
+        }
+    }
+
+    // ===== IDEMPOTENCY =====
+    /**
+     * Filter trả về "chắc chắn mới" thì không đọc DB
+     */
+    private Optional<TransactionResponse> findOriginal(String transactionId) {
+        if (!transactionIdFilter.mightContain(transactionId)) {
+            return Optional.empty();
+        }
+        return findStored(transactionId);
+    }
+
+    /**
+     * Kết quả "không có" trong cache bị bỏ qua: cần chắc chắn trước khi ghi lại giao dịch
+     */
+    private Optional<TransactionResponse> findStored(String transactionId) {
+        StoredTransfer stored = lookupCache.get(transactionId);
+        if (stored == null || stored == TransferLookupCache.NOT_FOUND) {
+            stored = loadStored(transactionId);
+        }
+        if (stored == TransferLookupCache.NOT_FOUND) {
+            return Optional.empty();
+        }
+        transactionIdFilter.put(transactionId);
+        transferMetrics.recordDuplicate();
+        log.info("Duplicate transfer, returning original result for TxID={}", masker.mask(transactionId));
+        return Optional.of(transactionMapper.toTransactionResponse(stored));
+    }
+
+    /**
+     * Đọc DB, không có thì đọc archive; ghi kết quả vào lookup cache
+     */
+    private StoredTransfer loadStored(String transactionId) {
+        List<TransactionHistory> legs = transactionHistoryRepository.findByTransactionId(transactionId);
+        if (legs.isEmpty()) {
+            legs = historyArchiveService.findByTransactionId(transactionId);
+        }
+        if (legs.isEmpty()) {
+            lookupCache.putNotFound(transactionId);
+            return TransferLookupCache.NOT_FOUND;
+        }
+        StoredTransfer stored = transactionMapper.toStoredTransfer(legs);
+        lookupCache.put(stored);
+        return stored;
+    }
+
+    /**
+     * Vị trí (time, id) của dòng cuối trang, client nhận dạng Base64 URL-safe
+     */
+    private record HistoryCursor(LocalDateTime time, long id) {
+        private static final String SEPARATOR = "|";
+
+        static HistoryCursor of(TransactionHistory row) {
+            return new HistoryCursor(row.getTime(), row.getId());
+        }
+
+        /**
+         * Không có cursor thì bắt đầu từ from; cursor trỏ trước from cũng bị kéo về from
+         */
+        static HistoryCursor decode(String cursor, LocalDateTime from) {
+            if (cursor == null || cursor.isEmpty()) {
+                return new HistoryCursor(from, 0L);
+            }
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(SEPARATOR);
+                HistoryCursor parsed = new HistoryCursor(
+                        LocalDateTime.parse(decoded.substring(0, separator), FORMATTER),
+                        Long.parseLong(decoded.substring(separator + 1)));
+                return parsed.time().isBefore(from) ? new HistoryCursor(from, 0L) : parsed;
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new AppException("history.cursor.invalid", HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        String encode() {
+            String raw = time.format(FORMATTER) + SEPARATOR + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Giao dịch đã mã hóa sẵn, chỉ còn bước ghi DB
+     * Entity được tạo mới mỗi lần gọi legs() để có thể ghi lại sau khi rollback
+     */
+    private record PreparedTransfer(TransferCommand command, String encryptedSource, String encryptedDest,
+                                    String sourceIndex, String destIndex) {
+        private static final byte JOURNAL_FORMAT_VERSION = 1;
+
+        /**
+         * Chỉ ghi phần cần cho DB, không ghi account plain text
+         */
+        byte[] toJournalRecord() {
+            try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                 DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(JOURNAL_FORMAT_VERSION);
+                out.writeUTF(command.getTransactionId());
+                out.writeUTF(command.getAmount().toPlainString());
+                out.writeUTF(command.getTime().format(FORMATTER));
+                out.writeUTF(encryptedSource);
+                out.writeUTF(encryptedDest);
+                out.writeUTF(sourceIndex);
+                out.writeUTF(destIndex);
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        static PreparedTransfer fromJournalRecord(byte[] record) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+                byte version = in.readByte();
+                if (version != JOURNAL_FORMAT_VERSION) {
+                    throw new IllegalStateException("Unsupported journal record version " + version);
+                }
+                TransferCommand command = TransferCommand.builder()
+                        .transactionId(in.readUTF())
+                        .amount(new BigDecimal(in.readUTF()))
+                        .time(LocalDateTime.parse(in.readUTF(), FORMATTER))
+                        .build();
+                return new PreparedTransfer(command, in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<TransactionHistory> legs() {
+            // ===== DEBIT =====
+            TransactionHistory debit = TransactionHistory.builder()
+                    .transactionId(command.getTransactionId())
                     .account(encryptedSource)
-                    .inDebt(amount)
+                    .accountIndex(sourceIndex)
+                    .inDebt(command.getAmount())
                     .have(ZERO_AMOUNT)
-                    .time(time)
-                    .build()
-            );
+                    .time(command.getTime())
+                    .build();
 
-            // ===== SAVE CREDIT =====
-            transactionHistoryRepository.save(TransactionHistory.builder()
-                    .transactionId(transactionId)
+            // ===== CREDIT =====
+            TransactionHistory credit = TransactionHistory.builder()
+                    .transactionId(command.getTransactionId())
                     .account(encryptedDest)
+                    .accountIndex(destIndex)
                     .inDebt(ZERO_AMOUNT)
-                    .have(amount)
-                    .time(time)
-                    .build()
-            );
+                    .have(command.getAmount())
+                    .time(command.getTime())
+                    .build();
 
-            return TransactionResponse.builder()
-                    .transactionId(transactionId)
-                    .sourceAccount(sourceAccount)
-                    .destAccount(destAccount)
-                    .amount(amount)
-                    .time(time)
+            return List.of(debit, credit);
+        }
+
+        TransferIdempotencyKey idempotencyKey() {
+            return TransferIdempotencyKey.builder()
+                    .transactionId(command.getTransactionId())
+                    .createdAt(LocalDateTime.now())
                     .build();
+        }
 
-        } catch (Exception e) {
-            log.error("Transaction failed", e);
-            throw new TransactionProcessingException(
-                    Translator.toLocale("transaction.failed"));
+        TransferOutbox outbox() {
+            return TransferOutbox.builder()
+                    .transactionId(command.getTransactionId())
+                    .sourceAccount(encryptedSource)
+                    .destAccount(encryptedDest)
+                    .amount(command.getAmount())
+                    .time(command.getTime())
+                    .createdAt(LocalDateTime.now())
+                    .build();
+        }
+
+        /**
+         * Dạng giữ trong lookup cache, account bản AES
+         */
+        StoredTransfer stored() {
+            return new StoredTransfer(command.getTransactionId(), encryptedSource, encryptedDest,
+                    command.getAmount(), command.getTime());
+        }
+
+        TransactionResponse response() {
+            return TransactionResponse.builder()
+                    .transactionId(command.getTransactionId())
+                    .sourceAccount(command.getSourceAccount())
+                    .destAccount(command.getDestAccount())
+                    .amount(command.getAmount())
+                    .time(command.getTime())
+                    .build();
         }
     }
 }
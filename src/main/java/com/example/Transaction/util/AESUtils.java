@@ -2,70 +2,145 @@ package com.example.Transaction.util;
 
 import com.example.Transaction.config.Translator;
 import com.example.Transaction.exception.AESProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Mã hóa account trước khi lưu DB
+ * - Format hiện tại (v2): version(1) + algorithm(1) + keyId(1) + IV(12) + ciphertext + tag(16), AES-256-GCM,
+ *   header nằm trong AAD nên sửa header cũng bị phát hiện; GCM trên JDK 17 chạy bằng intrinsic AES-NI / CLMUL
+ * - Format cũ: IV(16) + ciphertext AES/CBC, đọc khi bật encryption.aes.legacy-cbc-read (mặc định bật,
+ *   chỉ tắt sau khi reencryption chạy xong). Chọn format theo header: giá trị có header v2 chỉ giải mã bằng GCM,
+ *   xác thực thất bại là lỗi, không bao giờ đọc lại theo CBC; mỗi lần đọc CBC đều được log và đếm.
+ *   Dòng CBC cũ có IV ngẫu nhiên trùng header v2 với key ID có trong key ring (xác suất 2^-24) không đọc được
+ * - Key ring: key hiện tại (encryption.aes.master.key / key-id) dùng để mã hóa, các key cũ
+ *   (encryption.aes.retired-keys: keyId -> master key) chỉ dùng để giải mã trong lúc rotation
+ */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class AESUtils {
     private static final String AES_ALGORITHM = "AES";
-    private static final String AES_TRANSFORMATION = "AES/CBC/PKCS5Padding";
-    private static final int IV_SIZE = 16;
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_TRANSFORMATION = "AES/CBC/PKCS5Padding";
     private static final String HASH_ALGORITHM = "SHA-256";
 
+    private static final byte FORMAT_VERSION = 2;
+    private static final byte ALGORITHM_AES_256_GCM = 1;
+    private static final int HEADER_SIZE = 3;
+    private static final int GCM_IV_SIZE = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final int GCM_TAG_SIZE = GCM_TAG_BITS / 8;
+    private static final int LEGACY_IV_SIZE = 16;
+    private static final int LEGACY_BLOCK_SIZE = 16;
+    private static final String RETIRED_KEYS_PROPERTY = "encryption.aes.retired-keys";
+
+    private final CryptoPool cryptoPool;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
     @Value("${encryption.aes.master.key}")
     private String masterKey;
 
     /**
-     * Tạo SecretKey từ master key cố định
+     * ID của master key, ghi vào header của mỗi giá trị mã hóa
+     */
+    @Value("${encryption.aes.key-id}")
+    private int keyId;
+
+    @Value("${encryption.aes.legacy-cbc-read}")
+    private boolean legacyCbcRead;
+
+    /**
+     * Key ID của master key đã mã hóa các giá trị CBC cũ (trước khi có header)
+     */
+    @Value("${encryption.aes.legacy-key-id}")
+    private int legacyKeyId;
+
+    private SecretKeySpec secretKey;
+    private SecretKeySpec legacyKey;
+    private Map<Integer, SecretKeySpec> keyRing;
+    private Counter legacyReads;
+
+    /**
+     * Tạo key ring một lần khi khởi động
      * Dùng SHA-256 để tạo key 256-bit từ master key string
      */
-    private SecretKeySpec getSecretKey() {
+    @PostConstruct
+    void initSecretKey() {
+        Map<Integer, String> retiredKeys = Binder.get(environment)
+                .bind(RETIRED_KEYS_PROPERTY, Bindable.mapOf(Integer.class, String.class))
+                .orElse(Map.of());
+
+        keyRing = new HashMap<>();
+        for (Map.Entry<Integer, String> retired : retiredKeys.entrySet()) {
+            keyRing.put(checkKeyId(retired.getKey()), deriveKey(retired.getValue()));
+        }
+        secretKey = deriveKey(masterKey);
+        keyRing.put(checkKeyId(keyId), secretKey);
+
+        legacyKey = keyRing.get(legacyKeyId);
+        if (legacyKey == null && legacyCbcRead) {
+            throw new IllegalStateException("encryption.aes.legacy-key-id " + legacyKeyId + " is not in the key ring");
+        }
+        legacyReads = Counter.builder("aes.legacy.reads")
+                .description("Values decrypted with the legacy AES/CBC format")
+                .register(meterRegistry);
+        log.info("AES key ring loaded, current key ID {}, {} keys, legacy CBC read {}",
+                keyId, keyRing.size(), legacyCbcRead ? "enabled" : "disabled");
+    }
+
+    private static int checkKeyId(int id) {
+        if (id < 1 || id > 255) {
+            throw new IllegalStateException("AES key ID must be between 1 and 255: " + id);
+        }
+        return id;
+    }
+
+    private SecretKeySpec deriveKey(String master) {
         try {
-            byte[] key = masterKey.getBytes(StandardCharsets.UTF_8);
-            MessageDigest sha = MessageDigest.getInstance(HASH_ALGORITHM);
-            key = sha.digest(key);
-            key = Arrays.copyOf(key, 32);
-            return new SecretKeySpec(key, AES_ALGORITHM);
-        } catch (NoSuchAlgorithmException e) {
+            byte[] key = cryptoPool.withDigest(HASH_ALGORITHM,
+                    sha -> sha.digest(master.getBytes(StandardCharsets.UTF_8)));
+            return new SecretKeySpec(Arrays.copyOf(key, 32), AES_ALGORITHM);
+        } catch (GeneralSecurityException e) {
             log.error("Failed to generate secret key", e);
             throw new AESProcessingException(Translator.toLocale("aes.key.failed"), e);
         }
     }
 
+    public int getKeyId() {
+        return keyId;
+    }
+
     /**
-     * Mã hóa cho DB - IV được embed vào encrypted data
-     * Format: IV(16 bytes) + EncryptedData
+     * Mã hóa cho DB theo format v2 (AES-GCM) bằng key hiện tại
      * Dùng để mã hóa Account Number trước khi lưu DB
      */
     public String encryptForDB(String plainText) {
         if (plainText == null || plainText.isEmpty()) return plainText;
 
         try {
-            byte[] iv = new byte[IV_SIZE];
-            new SecureRandom().nextBytes(iv);
-
-            Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, getSecretKey(), new IvParameterSpec(iv));
-            byte[] encrypted = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-
-            byte[] combined = new byte[IV_SIZE + encrypted.length];
-            System.arraycopy(iv, 0, combined, 0, IV_SIZE);
-            System.arraycopy(encrypted, 0, combined, IV_SIZE, encrypted.length);
-
-            return Base64.getEncoder().encodeToString(combined);
+            return cryptoPool.withCipher(GCM_TRANSFORMATION, cipher -> encrypt(cipher, plainText));
         } catch (GeneralSecurityException e) {
             log.error("AES encryption failed", e);
             throw new AESProcessingException(Translator.toLocale("aes.encrypt.failed"), e);
@@ -73,25 +148,31 @@ public class AESUtils {
     }
 
     /**
-     * Giải mã từ DB - Extract IV từ encrypted data
+     * Giải mã từ DB, đọc được cả format v2 (mọi key trong key ring) và format CBC cũ
      * Dùng để giải mã Account Number khi đọc từ DB
      */
     public String decryptFromDB(String encryptedBase64) {
         if (encryptedBase64 == null || encryptedBase64.isEmpty()) return encryptedBase64;
+        return decryptAll(List.of(encryptedBase64)).get(0);
+    }
 
+    /**
+     * Giải mã nhiều giá trị với một Cipher GCM lấy từ pool một lần, giữ nguyên thứ tự
+     * Dùng cho một trang lịch sử giao dịch
+     */
+    public List<String> decryptAll(List<String> encryptedValues) {
+        String[] plainTexts = new String[encryptedValues.size()];
         try {
-            byte[] combined = Base64.getDecoder().decode(encryptedBase64);
-
-            if (combined.length < IV_SIZE) {
-                throw new IllegalArgumentException(Translator.toLocale("aes.invalid.data"));
-            }
-
-            byte[] iv = Arrays.copyOfRange(combined, 0, IV_SIZE);
-            byte[] encrypted = Arrays.copyOfRange(combined, IV_SIZE, combined.length);
-
-            Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, getSecretKey(), new IvParameterSpec(iv));
-            return new String(cipher.doFinal(encrypted), StandardCharsets.UTF_8);
+            cryptoPool.withCipher(GCM_TRANSFORMATION, cipher -> {
+                for (int i = 0; i < plainTexts.length; i++) {
+                    String value = encryptedValues.get(i);
+                    plainTexts[i] = value == null || value.isEmpty()
+                            ? value
+                            : decrypt(cipher, Base64.getDecoder().decode(value));
+                }
+                return null;
+            });
+            return Arrays.asList(plainTexts);
         } catch (GeneralSecurityException e) {
             log.error("AES decryption failed", e);
             throw new AESProcessingException(Translator.toLocale("aes.decrypt.failed"), e);
@@ -100,4 +181,98 @@ public class AESUtils {
             throw new AESProcessingException(Translator.toLocale("aes.invalid.data"), e);
         }
     }
+
+    /**
+     * Mã hóa lại bằng key hiện tại các giá trị đang ở key cũ / format CBC, một Cipher cho cả danh sách
+     * Phần tử trả về null nếu giá trị đã ở format v2 với key hiện tại (không cần ghi lại)
+     */
+    public List<String> reencryptAll(List<String> encryptedValues) {
+        String[] rewritten = new String[encryptedValues.size()];
+        try {
+            cryptoPool.withCipher(GCM_TRANSFORMATION, cipher -> {
+                for (int i = 0; i < rewritten.length; i++) {
+                    String value = encryptedValues.get(i);
+                    if (value == null || value.isEmpty()) continue;
+                    byte[] combined = Base64.getDecoder().decode(value);
+                    if (isCurrent(combined)) continue;
+                    rewritten[i] = encrypt(cipher, decrypt(cipher, combined));
+                }
+                return null;
+            });
+            return Arrays.asList(rewritten);
+        } catch (GeneralSecurityException e) {
+            log.error("AES re-encryption failed", e);
+            throw new AESProcessingException(Translator.toLocale("aes.decrypt.failed"), e);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid Base64 input", e);
+            throw new AESProcessingException(Translator.toLocale("aes.invalid.data"), e);
+        }
+    }
+
+    private String encrypt(Cipher gcm, String plainText) throws GeneralSecurityException {
+        byte[] plain = plainText.getBytes(StandardCharsets.UTF_8);
+        byte[] combined = new byte[HEADER_SIZE + GCM_IV_SIZE + plain.length + GCM_TAG_SIZE];
+        combined[0] = FORMAT_VERSION;
+        combined[1] = ALGORITHM_AES_256_GCM;
+        combined[2] = (byte) keyId;
+
+        byte[] iv = new byte[GCM_IV_SIZE];
+        cryptoPool.nextBytes(iv);
+        System.arraycopy(iv, 0, combined, HEADER_SIZE, GCM_IV_SIZE);
+
+        gcm.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+        gcm.updateAAD(combined, 0, HEADER_SIZE);
+        gcm.doFinal(plain, 0, plain.length, combined, HEADER_SIZE + GCM_IV_SIZE);
+        return Base64.getEncoder().encodeToString(combined);
+    }
+
+    /**
+     * Có header v2 thì chỉ GCM (tag sai ném AEADBadTagException), không có mới đọc theo CBC
+     */
+    private String decrypt(Cipher gcm, byte[] combined) throws GeneralSecurityException {
+        if (hasGcmHeader(combined)) {
+            SecretKeySpec key = keyRing.get(combined[2] & 0xFF);
+            if (key == null) {
+                throw new IllegalArgumentException(Translator.toLocale("aes.invalid.data"));
+            }
+            return decryptGcm(gcm, key, combined);
+        }
+        if (!isLegacyShaped(combined)) {
+            throw new IllegalArgumentException(Translator.toLocale("aes.invalid.data"));
+        }
+        legacyReads.increment();
+        log.warn("Decrypting legacy AES/CBC value, re-encryption pending");
+        return decryptLegacy(combined);
+    }
+
+    private String decryptGcm(Cipher gcm, SecretKeySpec key, byte[] combined) throws GeneralSecurityException {
+        gcm.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, combined, HEADER_SIZE, GCM_IV_SIZE));
+        gcm.updateAAD(combined, 0, HEADER_SIZE);
+        int offset = HEADER_SIZE + GCM_IV_SIZE;
+        return new String(gcm.doFinal(combined, offset, combined.length - offset), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Header v2 với key ID hiện tại: không cần ghi lại (giá trị bị sửa sẽ lỗi khi đọc)
+     */
+    private boolean isCurrent(byte[] combined) {
+        return hasGcmHeader(combined) && (combined[2] & 0xFF) == keyId;
+    }
+
+    private static boolean hasGcmHeader(byte[] combined) {
+        return combined.length >= HEADER_SIZE + GCM_IV_SIZE + GCM_TAG_SIZE
+                && combined[0] == FORMAT_VERSION && combined[1] == ALGORITHM_AES_256_GCM;
+    }
+
+    private boolean isLegacyShaped(byte[] combined) {
+        return legacyCbcRead && combined.length >= LEGACY_IV_SIZE + LEGACY_BLOCK_SIZE && combined.length % LEGACY_BLOCK_SIZE == 0;
+    }
+
+    private String decryptLegacy(byte[] combined) throws GeneralSecurityException {
+        byte[] plain = cryptoPool.withCipher(LEGACY_TRANSFORMATION, cipher -> {
+            cipher.init(Cipher.DECRYPT_MODE, legacyKey, new IvParameterSpec(combined, 0, LEGACY_IV_SIZE));
+            return cipher.doFinal(combined, LEGACY_IV_SIZE, combined.length - LEGACY_IV_SIZE);
+        });
+        return new String(plain, StandardCharsets.UTF_8);
+    }
 }
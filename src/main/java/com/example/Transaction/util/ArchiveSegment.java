@@ -0,0 +1,703 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.entity.TransactionHistory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * File lưu trữ các dòng transaction_history cũ, bất biến, dạng cột có nén
+ * - Dòng sắp theo (time, id), chia row group; mỗi cột của mỗi row group nén Deflate riêng
+ *   (id / time mã hóa delta varint, số tiền là long ở scale 2) nên đọc một dòng chỉ giải nén một row group,
+ *   tổng theo account chỉ giải nén các cột cần
+ * - Header có số dòng, min / max time, min / max id để bỏ qua file không giao khoảng thời gian cần đọc
+ * - Index transactionId và accountIndex: các cặp (hash 64-bit, số thứ tự dòng) sắp theo hash, không nén,
+ *   binary search trực tiếp trên vùng memory-mapped; trùng hash được loại bằng so sánh chuỗi sau khi giải nén
+ * - Đọc qua FileChannel.map (READ_ONLY), chỉ dùng get tuyệt đối / slice nên dùng chung giữa các thread
+ * - Trailer: CRC32C (phần thân rồi tới header) + magic, file ghi dở không qua được kiểm tra khi mở
+ * Layout: header | row group data | directory (offset, độ dài nén, độ dài gốc cho từng cột của từng group)
+ *         | index transactionId | index accountIndex | trailer
+ */
+public final class ArchiveSegment {
+    private static final int MAGIC = 0x54584152;
+    private static final int TRAILER_MAGIC = 0x54584145;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 84;
+    private static final int TRAILER_SIZE = 8;
+    private static final int DIRECTORY_ENTRY_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    private static final int AMOUNT_SCALE = 2;
+
+    private enum Column {ID, TIME_SECONDS, TIME_NANOS, TRANSACTION_ID, ACCOUNT, ACCOUNT_INDEX, IN_DEBT, HAVE}
+
+    private static final Column[] COLUMNS = Column.values();
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final int rowGroupSize;
+    private final int groupCount;
+    private final LocalDateTime minTime;
+    private final LocalDateTime maxTime;
+    private final long minId;
+    private final long maxId;
+    private final int directoryOffset;
+    private final int transactionIndexOffset;
+    private final int accountIndexOffset;
+
+    private ArchiveSegment(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Not an archive segment: " + path);
+        }
+        rowCount = buffer.getInt(8);
+        rowGroupSize = buffer.getInt(12);
+        groupCount = buffer.getInt(16);
+        minTime = LocalDateTime.ofEpochSecond(buffer.getLong(20), buffer.getInt(28), ZoneOffset.UTC);
+        maxTime = LocalDateTime.ofEpochSecond(buffer.getLong(32), buffer.getInt(40), ZoneOffset.UTC);
+        minId = buffer.getLong(44);
+        maxId = buffer.getLong(52);
+        directoryOffset = (int) buffer.getLong(60);
+        transactionIndexOffset = (int) buffer.getLong(68);
+        accountIndexOffset = (int) buffer.getLong(76);
+    }
+
+    /**
+     * Map file và kiểm tra trailer / CRC
+     * @throws IllegalStateException nếu file không hoàn chỉnh hoặc hỏng
+     */
+    public static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Invalid archive segment size " + size + ": " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int trailer = (int) size - TRAILER_SIZE;
+            if (buffer.getInt(trailer + 4) != TRAILER_MAGIC) {
+                throw new IllegalStateException("Incomplete archive segment: " + path);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(HEADER_SIZE, trailer - HEADER_SIZE));
+            crc.update(buffer.slice(0, HEADER_SIZE));
+            if ((int) crc.getValue() != buffer.getInt(trailer)) {
+                throw new IllegalStateException("Archive segment checksum mismatch: " + path);
+            }
+            return new ArchiveSegment(path, buffer);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public LocalDateTime getMinTime() {
+        return minTime;
+    }
+
+    public LocalDateTime getMaxTime() {
+        return maxTime;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * File có dòng nào trong [from, to) không, chỉ đọc header
+     */
+    public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return minTime.isBefore(to) && !maxTime.isBefore(from);
+    }
+
+    public List<TransactionHistory> findByTransactionId(String transactionId) {
+        List<TransactionHistory> rows = new ArrayList<>(2);
+        RowGroup group = null;
+        for (int row : lookup(transactionIndexOffset, hash(transactionId))) {
+            group = group(group, row);
+            int i = row % rowGroupSize;
+            if (transactionId.equals(group.transactionIds()[i])) {
+                rows.add(group.row(i));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Các dòng của account có time trong [from, to), theo thứ tự (time, id)
+     */
+    public List<TransactionHistory> findByAccountIndex(String accountIndex, LocalDateTime from, LocalDateTime to) {
+        List<TransactionHistory> rows = new ArrayList<>();
+        RowGroup group = null;
+        for (int row : lookup(accountIndexOffset, hash(accountIndex))) {
+            group = group(group, row);
+            int i = row % rowGroupSize;
+            if (accountIndex.equals(group.accountIndexes()[i])) {
+                LocalDateTime time = group.time(i);
+                if (!time.isBefore(from) && time.isBefore(to)) {
+                    rows.add(group.row(i));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Cộng inDebt / have (đơn vị nhỏ nhất, scale 2) của account vào totals[0] / totals[1]
+     * Chỉ giải nén các cột accountIndex, inDebt, have của các row group có dòng của account
+     */
+    public void addTotals(String accountIndex, long[] totals) {
+        RowGroup group = null;
+        for (int row : lookup(accountIndexOffset, hash(accountIndex))) {
+            group = group(group, row);
+            int i = row % rowGroupSize;
+            if (accountIndex.equals(group.accountIndexes()[i])) {
+                totals[0] = Math.addExact(totals[0], group.inDebts()[i]);
+                totals[1] = Math.addExact(totals[1], group.haves()[i]);
+            }
+        }
+    }
+
+    /**
+     * Duyệt accountIndex (khác null) của mọi dòng, chỉ giải nén cột accountIndex
+     */
+    public void forEachAccountIndex(Consumer<String> consumer) {
+        for (int g = 0; g < groupCount; g++) {
+            for (String accountIndex : new RowGroup(g).accountIndexes()) {
+                if (accountIndex != null) {
+                    consumer.accept(accountIndex);
+                }
+            }
+        }
+    }
+
+    public long[] ids() {
+        long[] ids = new long[rowCount];
+        for (int g = 0; g < groupCount; g++) {
+            long[] groupIds = new RowGroup(g).ids();
+            System.arraycopy(groupIds, 0, ids, g * rowGroupSize, groupIds.length);
+        }
+        return ids;
+    }
+
+    public static BigDecimal toAmount(long units) {
+        return BigDecimal.valueOf(units, AMOUNT_SCALE);
+    }
+
+    /* ========== INDEX ========== */
+    private RowGroup group(RowGroup current, int row) {
+        int g = row / rowGroupSize;
+        return current != null && current.group == g ? current : new RowGroup(g);
+    }
+
+    /**
+     * Số thứ tự các dòng có hash bằng target, tăng dần
+     */
+    private int[] lookup(int indexOffset, long target) {
+        int count = buffer.getInt(indexOffset);
+        int entries = indexOffset + 4;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(entries + mid * INDEX_ENTRY_SIZE) < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < count && buffer.getLong(entries + end * INDEX_ENTRY_SIZE) == target) {
+            end++;
+        }
+        int[] rows = new int[end - low];
+        for (int i = low; i < end; i++) {
+            rows[i - low] = buffer.getInt(entries + i * INDEX_ENTRY_SIZE + 8);
+        }
+        return rows;
+    }
+
+    /**
+     * FNV-1a 64-bit rồi trộn bit (finalizer của MurmurHash3); là một phần của format, không được đổi
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /* ========== ROW GROUP ========== */
+    /**
+     * Một row group, mỗi cột chỉ giải nén khi được dùng tới
+     */
+    private final class RowGroup {
+        private final int group;
+        private final int rows;
+        private long[] ids;
+        private long[] seconds;
+        private long[] nanos;
+        private String[] transactionIds;
+        private String[] accounts;
+        private String[] accountIndexes;
+        private long[] inDebts;
+        private long[] haves;
+
+        RowGroup(int group) {
+            this.group = group;
+            this.rows = Math.min(rowGroupSize, rowCount - group * rowGroupSize);
+        }
+
+        long[] ids() {
+            if (ids == null) ids = decodeLongs(Column.ID, true);
+            return ids;
+        }
+
+        String[] transactionIds() {
+            if (transactionIds == null) transactionIds = decodeStrings(Column.TRANSACTION_ID);
+            return transactionIds;
+        }
+
+        String[] accountIndexes() {
+            if (accountIndexes == null) accountIndexes = decodeStrings(Column.ACCOUNT_INDEX);
+            return accountIndexes;
+        }
+
+        long[] inDebts() {
+            if (inDebts == null) inDebts = decodeLongs(Column.IN_DEBT, false);
+            return inDebts;
+        }
+
+        long[] haves() {
+            if (haves == null) haves = decodeLongs(Column.HAVE, false);
+            return haves;
+        }
+
+        LocalDateTime time(int i) {
+            if (seconds == null) {
+                seconds = decodeLongs(Column.TIME_SECONDS, true);
+                nanos = decodeLongs(Column.TIME_NANOS, false);
+            }
+            return LocalDateTime.ofEpochSecond(seconds[i], (int) nanos[i], ZoneOffset.UTC);
+        }
+
+        TransactionHistory row(int i) {
+            if (accounts == null) {
+                Decoder decoder = column(Column.ACCOUNT);
+                accounts = new String[rows];
+                for (int r = 0; r < rows; r++) {
+                    accounts[r] = Base64.getEncoder().encodeToString(decoder.readBytes());
+                }
+            }
+            return TransactionHistory.builder()
+                    .id(ids()[i])
+                    .transactionId(transactionIds()[i])
+                    .account(accounts[i])
+                    .accountIndex(accountIndexes()[i])
+                    .inDebt(toAmount(inDebts()[i]))
+                    .have(toAmount(haves()[i]))
+                    .time(time(i))
+                    .build();
+        }
+
+        private long[] decodeLongs(Column column, boolean delta) {
+            Decoder decoder = column(column);
+            long[] values = new long[rows];
+            long previous = 0;
+            for (int r = 0; r < rows; r++) {
+                long value = decoder.readZigZag();
+                values[r] = delta ? previous += value : value;
+            }
+            return values;
+        }
+
+        private String[] decodeStrings(Column column) {
+            Decoder decoder = column(column);
+            String[] values = new String[rows];
+            for (int r = 0; r < rows; r++) {
+                values[r] = decoder.readNullableString();
+            }
+            return values;
+        }
+
+        private Decoder column(Column column) {
+            int entry = directoryOffset + (group * COLUMNS.length + column.ordinal()) * DIRECTORY_ENTRY_SIZE;
+            int offset = (int) buffer.getLong(entry);
+            int compressed = buffer.getInt(entry + 8);
+            int raw = buffer.getInt(entry + 12);
+            return new Decoder(inflate(offset, compressed, raw));
+        }
+    }
+
+    private byte[] inflate(int offset, int compressed, int raw) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offset, compressed));
+            byte[] out = new byte[raw];
+            int n = 0;
+            while (n < raw && !inflater.finished()) {
+                int inflated = inflater.inflate(out, n, raw - n);
+                if (inflated == 0 && inflater.needsInput()) break;
+                n += inflated;
+            }
+            if (n != raw) {
+                throw new IllegalStateException("Corrupt column block in " + path);
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt column block in " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Decoder {
+        private final byte[] data;
+        private int position;
+
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        byte[] readBytes() {
+            int length = (int) readVarLong();
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readNullableString() {
+            int length = (int) readVarLong() - 1;
+            if (length < 0) return null;
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+    /* ========== WRITER ========== */
+    /**
+     * Ghi segment mới, dòng phải được append theo thứ tự (time, id)
+     * Chỉ một thread dùng; file chỉ hợp lệ sau finish()
+     */
+    public static final class Writer implements AutoCloseable {
+        private final Path path;
+        private final FileChannel channel;
+        private final int rowGroupSize;
+        private final Deflater deflater;
+        private final CRC32C bodyCrc = new CRC32C();
+        private final Bytes[] columns = new Bytes[COLUMNS.length];
+        private final Bytes directory = new Bytes();
+        private byte[] compressBuffer = new byte[8192];
+
+        private long position = HEADER_SIZE;
+        private int rowCount;
+        private int groupRows;
+        private int groupCount;
+        private long previousId;
+        private long previousSeconds;
+        private LocalDateTime minTime;
+        private LocalDateTime maxTime;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+
+        private long[] transactionHashes = new long[1024];
+        private long[] accountHashes = new long[1024];
+        private int[] accountRows = new int[1024];
+        private int accountCount;
+
+        public Writer(Path path, int rowGroupSize, int compressionLevel) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.rowGroupSize = rowGroupSize;
+            this.deflater = new Deflater(compressionLevel);
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = new Bytes();
+            }
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public void append(TransactionHistory row) throws IOException {
+            LocalDateTime time = row.getTime();
+            long seconds = time.toEpochSecond(ZoneOffset.UTC);
+            if (groupRows == 0) {
+                previousId = 0;
+                previousSeconds = 0;
+            }
+            columns[Column.ID.ordinal()].writeZigZag(row.getId() - previousId);
+            columns[Column.TIME_SECONDS.ordinal()].writeZigZag(seconds - previousSeconds);
+            columns[Column.TIME_NANOS.ordinal()].writeZigZag(time.getNano());
+            columns[Column.TRANSACTION_ID.ordinal()].writeNullableString(row.getTransactionId());
+            columns[Column.ACCOUNT.ordinal()].writeBytes(Base64.getDecoder().decode(row.getAccount()));
+            columns[Column.ACCOUNT_INDEX.ordinal()].writeNullableString(row.getAccountIndex());
+            columns[Column.IN_DEBT.ordinal()].writeZigZag(toUnits(row.getInDebt()));
+            columns[Column.HAVE.ordinal()].writeZigZag(toUnits(row.getHave()));
+            previousId = row.getId();
+            previousSeconds = seconds;
+
+            if (minTime == null) minTime = time;
+            maxTime = time;
+            minId = Math.min(minId, row.getId());
+            maxId = Math.max(maxId, row.getId());
+
+            if (rowCount == transactionHashes.length) {
+                transactionHashes = Arrays.copyOf(transactionHashes, rowCount * 2);
+            }
+            transactionHashes[rowCount] = hash(row.getTransactionId());
+            if (row.getAccountIndex() != null) {
+                if (accountCount == accountHashes.length) {
+                    accountHashes = Arrays.copyOf(accountHashes, accountCount * 2);
+                    accountRows = Arrays.copyOf(accountRows, accountCount * 2);
+                }
+                accountHashes[accountCount] = hash(row.getAccountIndex());
+                accountRows[accountCount++] = rowCount;
+            }
+            rowCount++;
+            if (++groupRows == rowGroupSize) {
+                flushGroup();
+            }
+        }
+
+        /**
+         * Ghi row group cuối, directory, index, header, trailer rồi fsync
+         */
+        public void finish() throws IOException {
+            if (rowCount == 0) {
+                throw new IllegalStateException("Archive segment has no rows: " + path);
+            }
+            if (groupRows > 0) {
+                flushGroup();
+            }
+            long directoryOffset = position;
+            write(directory.data, directory.size);
+
+            int[] transactionRows = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                transactionRows[i] = i;
+            }
+            long transactionIndexOffset = position;
+            writeIndex(transactionHashes, transactionRows, rowCount);
+            long accountIndexOffset = position;
+            writeIndex(accountHashes, accountRows, accountCount);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION)
+                    .putInt(rowCount).putInt(rowGroupSize).putInt(groupCount)
+                    .putLong(minTime.toEpochSecond(ZoneOffset.UTC)).putInt(minTime.getNano())
+                    .putLong(maxTime.toEpochSecond(ZoneOffset.UTC)).putInt(maxTime.getNano())
+                    .putLong(minId).putLong(maxId)
+                    .putLong(directoryOffset).putLong(transactionIndexOffset).putLong(accountIndexOffset)
+                    .flip();
+            bodyCrc.update(header.duplicate());
+            writeFully(header, 0);
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            trailer.putInt((int) bodyCrc.getValue()).putInt(TRAILER_MAGIC).flip();
+            writeFully(trailer, position);
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+
+        private void flushGroup() throws IOException {
+            for (Bytes column : columns) {
+                deflater.reset();
+                deflater.setInput(column.data, 0, column.size);
+                deflater.finish();
+                long offset = position;
+                int compressed = 0;
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(compressBuffer);
+                    write(compressBuffer, n);
+                    compressed += n;
+                }
+                directory.writeLong(offset);
+                directory.writeInt(compressed);
+                directory.writeInt(column.size);
+                column.size = 0;
+            }
+            groupRows = 0;
+            groupCount++;
+        }
+
+        private void writeIndex(long[] hashes, int[] rows, int count) throws IOException {
+            sortByHash(hashes, rows, count);
+            Bytes index = new Bytes();
+            index.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                index.writeLong(hashes[i]);
+                index.writeInt(rows[i]);
+            }
+            write(index.data, index.size);
+        }
+
+        private void write(byte[] data, int length) throws IOException {
+            bodyCrc.update(data, 0, length);
+            writeFully(ByteBuffer.wrap(data, 0, length), position);
+            position += length;
+        }
+
+        private void writeFully(ByteBuffer data, long at) throws IOException {
+            while (data.hasRemaining()) {
+                at += channel.write(data, at);
+            }
+        }
+
+        private static long toUnits(BigDecimal amount) {
+            return amount.movePointRight(AMOUNT_SCALE).longValueExact();
+        }
+
+        /**
+         * Merge sort ổn định trên hai mảng song song: cùng hash thì giữ thứ tự dòng tăng dần
+         */
+        private static void sortByHash(long[] hashes, int[] rows, int count) {
+            long[] hashBuffer = new long[count];
+            int[] rowBuffer = new int[count];
+            for (int width = 1; width < count; width *= 2) {
+                for (int low = 0; low < count - width; low += 2 * width) {
+                    int mid = low + width;
+                    int high = Math.min(low + 2 * width, count);
+                    int i = low;
+                    int j = mid;
+                    int k = low;
+                    while (i < mid && j < high) {
+                        if (hashes[j] < hashes[i]) {
+                            hashBuffer[k] = hashes[j];
+                            rowBuffer[k++] = rows[j++];
+                        } else {
+                            hashBuffer[k] = hashes[i];
+                            rowBuffer[k++] = rows[i++];
+                        }
+                    }
+                    while (i < mid) {
+                        hashBuffer[k] = hashes[i];
+                        rowBuffer[k++] = rows[i++];
+                    }
+                    while (j < high) {
+                        hashBuffer[k] = hashes[j];
+                        rowBuffer[k++] = rows[j++];
+                    }
+                    System.arraycopy(hashBuffer, low, hashes, low, high - low);
+                    System.arraycopy(rowBuffer, low, rows, low, high - low);
+                }
+            }
+        }
+    }
+
+    /**
+     * Buffer byte tăng dần kích thước, ghi varint / số nguyên big-endian
+     */
+    private static final class Bytes {
+        private byte[] data = new byte[4096];
+        private int size;
+
+        void writeByte(int b) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = (byte) b;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            for (byte b : bytes) {
+                writeByte(b);
+            }
+        }
+
+        void writeNullableString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            for (byte b : bytes) {
+                writeByte(b);
+            }
+        }
+
+        void writeInt(int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                writeByte(value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (value >>> shift));
+            }
+        }
+    }
+}
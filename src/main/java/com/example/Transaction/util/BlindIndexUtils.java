@@ -0,0 +1,56 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.config.Translator;
+import com.example.Transaction.exception.AESProcessingException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Blind index cho cột account: HMAC-SHA256 với key riêng, tách biệt AES master key
+ * - Cùng account luôn cho cùng index nên tìm kiếm được bằng index DB
+ * - Không giải ngược được account từ index nếu không có key
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BlindIndexUtils {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final CryptoPool cryptoPool;
+
+    @Value("${encryption.blind-index.key}")
+    private String indexKey;
+
+    private SecretKeySpec secretKey;
+
+    @PostConstruct
+    void initSecretKey() {
+        secretKey = new SecretKeySpec(indexKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+
+    /**
+     * Base64 của HMAC-SHA256(account), 44 ký tự
+     */
+    public String index(String account) {
+        if (account == null || account.isEmpty()) return account;
+
+        try {
+            byte[] mac = cryptoPool.withMac(HMAC_ALGORITHM, hmac -> {
+                hmac.init(secretKey);
+                return hmac.doFinal(account.getBytes(StandardCharsets.UTF_8));
+            });
+            return Base64.getEncoder().encodeToString(mac);
+        } catch (GeneralSecurityException e) {
+            log.error("Blind index computation failed", e);
+            throw new AESProcessingException(Translator.toLocale("blind.index.failed"), e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.Transaction.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool dùng lại Cipher / Signature / MessageDigest / Mac cho các lớp crypto trong util
+ * - Không dùng ThreadLocal: với virtual thread, mỗi request là một thread mới nên ThreadLocal không được dùng lại
+ * - Pool lock-free, giới hạn số instance rảnh, hết thì tạo mới và bỏ bớt khi trả về
+ * - Một SecureRandom (DRBG) dùng chung, thread-safe
+ */
+@Slf4j
+@Component
+public class CryptoPool {
+    private static final int MAX_IDLE_PER_ALGORITHM = Runtime.getRuntime().availableProcessors() * 2;
+    private static final String SECURE_RANDOM_ALGORITHM = "DRBG";
+
+    private final Map<String, Pool<Cipher>> ciphers = new ConcurrentHashMap<>();
+    private final Map<String, Pool<Signature>> signatures = new ConcurrentHashMap<>();
+    private final Map<String, Pool<MessageDigest>> digests = new ConcurrentHashMap<>();
+    private final Map<String, Pool<Mac>> macs = new ConcurrentHashMap<>();
+    private final SecureRandom secureRandom = createSecureRandom();
+
+    @FunctionalInterface
+    public interface CryptoFunction<T, R> {
+        R apply(T primitive) throws GeneralSecurityException;
+    }
+
+    @FunctionalInterface
+    private interface CryptoFactory<T> {
+        T create() throws GeneralSecurityException;
+    }
+
+    public SecureRandom secureRandom() {
+        return secureRandom;
+    }
+
+    public void nextBytes(byte[] bytes) {
+        secureRandom.nextBytes(bytes);
+    }
+
+    /**
+     * Cipher luôn phải init lại trước khi dùng, nên không cần reset khi trả về pool
+     */
+    public <R> R withCipher(String transformation, CryptoFunction<Cipher, R> fn) throws GeneralSecurityException {
+        return ciphers.computeIfAbsent(transformation, t -> new Pool<>(() -> Cipher.getInstance(t)))
+                .use(fn);
+    }
+
+    /**
+     * Signature luôn phải initSign / initVerify lại trước khi dùng
+     */
+    public <R> R withSignature(String algorithm, CryptoFunction<Signature, R> fn) throws GeneralSecurityException {
+        return signatures.computeIfAbsent(algorithm, a -> new Pool<>(() -> Signature.getInstance(a)))
+                .use(fn);
+    }
+
+    public <R> R withDigest(String algorithm, CryptoFunction<MessageDigest, R> fn) throws GeneralSecurityException {
+        Pool<MessageDigest> pool = digests.computeIfAbsent(algorithm, a -> new Pool<>(() -> MessageDigest.getInstance(a)));
+        return pool.use(md -> {
+            md.reset();
+            return fn.apply(md);
+        });
+    }
+
+    /**
+     * Mac luôn phải init lại với key trước khi dùng
+     */
+    public <R> R withMac(String algorithm, CryptoFunction<Mac, R> fn) throws GeneralSecurityException {
+        return macs.computeIfAbsent(algorithm, a -> new Pool<>(() -> Mac.getInstance(a)))
+                .use(fn);
+    }
+
+    private static SecureRandom createSecureRandom() {
+        try {
+            return SecureRandom.getInstance(SECURE_RANDOM_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            log.warn("DRBG not available, falling back to default SecureRandom", e);
+            return new SecureRandom();
+        }
+    }
+
+    private static final class Pool<T> {
+        private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+        private final CryptoFactory<T> factory;
+
+        private Pool(CryptoFactory<T> factory) {
+            this.factory = factory;
+        }
+
+        <R> R use(CryptoFunction<T, R> fn) throws GeneralSecurityException {
+            T primitive = idle.poll();
+            if (primitive == null) {
+                primitive = factory.create();
+            } else {
+                idleCount.decrementAndGet();
+            }
+
+            boolean healthy = false;
+            try {
+                R result = fn.apply(primitive);
+                healthy = true;
+                return result;
+            } finally {
+                // Instance lỗi giữa chừng có thể ở trạng thái dở dang, bỏ luôn
+                if (healthy && idleCount.incrementAndGet() <= MAX_IDLE_PER_ALGORITHM) {
+                    idle.offer(primitive);
+                } else if (healthy) {
+                    idleCount.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.config.Translator;
+import com.example.Transaction.dto.request.TransactionEnvelopeRequest;
+import com.example.Transaction.exception.AESProcessingException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Hybrid envelope: một lần RSA unwrap session key, sau đó AES-GCM cho toàn bộ payload
+ * Thay cho việc RSA decrypt từng field riêng lẻ
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EnvelopeUtils {
+    private static final String AES_ALGORITHM = "AES";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int SESSION_KEY_SIZE = 32;
+    private static final int GCM_IV_SIZE = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final byte[] AAD = TransactionEnvelopeRequest.MEDIA_TYPE.getBytes(StandardCharsets.UTF_8);
+
+    private final RSAUtils rsaUtils;
+    private final CryptoPool cryptoPool;
+
+    /**
+     * Giải mã envelope, trả về payload plain text (JSON)
+     */
+    public byte[] open(TransactionEnvelopeRequest envelope) {
+        byte[] sessionKey = rsaUtils.decryptBytes(envelope.getEncryptedKey());
+        try {
+            if (sessionKey.length != SESSION_KEY_SIZE) {
+                throw new IllegalArgumentException(Translator.toLocale("envelope.invalid"));
+            }
+            byte[] iv = Base64.getDecoder().decode(envelope.getIv());
+            if (iv.length != GCM_IV_SIZE) {
+                throw new IllegalArgumentException(Translator.toLocale("envelope.invalid"));
+            }
+            byte[] payload = Base64.getDecoder().decode(envelope.getPayload());
+            SecretKeySpec key = new SecretKeySpec(sessionKey, AES_ALGORITHM);
+
+            return cryptoPool.withCipher(GCM_TRANSFORMATION, cipher -> {
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+                cipher.updateAAD(AAD);
+                return cipher.doFinal(payload);
+            });
+        } catch (GeneralSecurityException e) {
+            log.error("Envelope decryption failed", e);
+            throw new AESProcessingException(Translator.toLocale("envelope.invalid"), e);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid envelope", e);
+            throw new AESProcessingException(Translator.toLocale("envelope.invalid"), e);
+        } finally {
+            Arrays.fill(sessionKey, (byte) 0);
+        }
+    }
+
+    /**
+     * Tạo envelope từ payload plain text - phía client, dùng cho test và benchmark
+     */
+    public TransactionEnvelopeRequest seal(byte[] plainPayload) {
+        byte[] sessionKey = new byte[SESSION_KEY_SIZE];
+        byte[] iv = new byte[GCM_IV_SIZE];
+        cryptoPool.nextBytes(sessionKey);
+        cryptoPool.nextBytes(iv);
+        try {
+            SecretKeySpec key = new SecretKeySpec(sessionKey, AES_ALGORITHM);
+            byte[] payload = cryptoPool.withCipher(GCM_TRANSFORMATION, cipher -> {
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+                cipher.updateAAD(AAD);
+                return cipher.doFinal(plainPayload);
+            });
+            Base64.Encoder encoder = Base64.getEncoder();
+            return TransactionEnvelopeRequest.builder()
+                    .encryptedKey(encoder.encodeToString(rsaUtils.encryptBytes(sessionKey)))
+                    .iv(encoder.encodeToString(iv))
+                    .payload(encoder.encodeToString(payload))
+                    .build();
+        } catch (GeneralSecurityException e) {
+            log.error("Envelope encryption failed", e);
+            throw new AESProcessingException(Translator.toLocale("envelope.invalid"), e);
+        } finally {
+            Arrays.fill(sessionKey, (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.Transaction.util;
+
+/**
+ * Tổng số leg / debit / credit theo transactionId, dùng khi đối soát
+ * - Open addressing (linear probing) trên mảng primitive: key là hash 64-bit của transactionId,
+ *   so khớp long trước rồi mới equals chuỗi nên trùng hash không gộp nhầm giao dịch
+ * - Số tiền tính bằng đơn vị nhỏ nhất (scale 2) trong long, không tạo BigDecimal mỗi leg
+ * - clear() chỉ xóa các slot đã dùng, dùng lại mảng cho nhóm tiếp theo
+ * Không thread-safe: mỗi worker một instance
+ */
+public final class LedgerTally {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(String transactionId, int legs, long debitCents, long creditCents);
+    }
+
+    private long[] hashes;
+    private String[] transactionIds;
+    private int[] legs;
+    private long[] debits;
+    private long[] credits;
+    private int[] used;
+    private int size;
+
+    public LedgerTally(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max((int) (expectedSize / LOAD_FACTOR), 16) - 1) << 1);
+    }
+
+    public void add(String transactionId, long debitCents, long creditCents) {
+        if (size + 1 > hashes.length * LOAD_FACTOR) {
+            resize();
+        }
+        long hash = hash(transactionId);
+        int mask = hashes.length - 1;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (transactionIds[slot] != null) {
+            if (hashes[slot] == hash && transactionIds[slot].equals(transactionId)) {
+                legs[slot]++;
+                debits[slot] = Math.addExact(debits[slot], debitCents);
+                credits[slot] = Math.addExact(credits[slot], creditCents);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        transactionIds[slot] = transactionId;
+        legs[slot] = 1;
+        debits[slot] = debitCents;
+        credits[slot] = creditCents;
+        used[size++] = slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Duyệt các giao dịch không có đúng 2 leg hoặc tổng debit khác tổng credit
+     */
+    public void forEachUnbalanced(Visitor visitor) {
+        for (int i = 0; i < size; i++) {
+            int slot = used[i];
+            if (legs[slot] != 2 || debits[slot] != credits[slot]) {
+                visitor.visit(transactionIds[slot], legs[slot], debits[slot], credits[slot]);
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            transactionIds[used[i]] = null;
+        }
+        size = 0;
+    }
+
+    private void resize() {
+        long[] oldHashes = hashes;
+        String[] oldIds = transactionIds;
+        int[] oldLegs = legs;
+        long[] oldDebits = debits;
+        long[] oldCredits = credits;
+        int[] oldUsed = used;
+        int oldSize = size;
+
+        allocate(oldHashes.length << 1);
+        int mask = hashes.length - 1;
+        for (int i = 0; i < oldSize; i++) {
+            int from = oldUsed[i];
+            int slot = (int) (oldHashes[from] ^ (oldHashes[from] >>> 32)) & mask;
+            while (transactionIds[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = oldHashes[from];
+            transactionIds[slot] = oldIds[from];
+            legs[slot] = oldLegs[from];
+            debits[slot] = oldDebits[from];
+            credits[slot] = oldCredits[from];
+            used[size++] = slot;
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        transactionIds = new String[capacity];
+        legs = new int[capacity];
+        debits = new long[capacity];
+        credits = new long[capacity];
+        used = new int[(int) (capacity * LOAD_FACTOR) + 1];
+        size = 0;
+    }
+
+    /**
+     * FNV-1a 64-bit rồi trộn bit (finalizer của MurmurHash3) để các bit thấp dùng làm slot phân bố đều
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.Transaction.util;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Merge hai iterator đã sắp xếp theo cùng comparator, phần tử bằng nhau ở hai nguồn chỉ trả về một lần
+ * (dùng khi một dòng có thể nằm ở cả DB và archive trong lúc chuyển)
+ */
+public final class MergingIterator<T> implements Iterator<T> {
+    private final Iterator<T> left;
+    private final Iterator<T> right;
+    private final Comparator<? super T> comparator;
+    private T leftHead;
+    private T rightHead;
+
+    public MergingIterator(Iterator<T> left, Iterator<T> right, Comparator<? super T> comparator) {
+        this.left = left;
+        this.right = right;
+        this.comparator = comparator;
+        this.leftHead = left.hasNext() ? left.next() : null;
+        this.rightHead = right.hasNext() ? right.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return leftHead != null || rightHead != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T next;
+        int order = leftHead == null ? 1 : rightHead == null ? -1 : comparator.compare(leftHead, rightHead);
+        if (order <= 0) {
+            next = leftHead;
+            leftHead = left.hasNext() ? left.next() : null;
+            if (order == 0) {
+                rightHead = right.hasNext() ? right.next() : null;
+            }
+        } else {
+            next = rightHead;
+            rightHead = right.hasNext() ? right.next() : null;
+        }
+        return next;
+    }
+}
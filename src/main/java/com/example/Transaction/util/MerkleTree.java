@@ -0,0 +1,99 @@
+package com.example.Transaction.util;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merkle tree nhị phân trên các leaf hash, dùng để ký một lần cho cả batch receipt (ReceiptSigner)
+ * - Leaf: H(0x00 || nonce || data), node: H(0x01 || left || right); prefix khác nhau nên leaf không giả được node
+ * - Số node lẻ ở một tầng thì node cuối được đưa thẳng lên tầng trên (không nhân đôi),
+ *   nên hai batch khác số leaf không cho cùng root
+ * - Proof là các hash anh em từ leaf lên root; hướng ghép suy ra từ (index, leafCount), không cần lưu
+ * MessageDigest truyền vào từ bên gọi (CryptoPool), không thread-safe
+ */
+public final class MerkleTree {
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private final List<byte[][]> levels = new ArrayList<>();
+
+    /**
+     * @param leafHashes kết quả của leafHash(), ít nhất một phần tử
+     */
+    public MerkleTree(MessageDigest digest, List<byte[]> leafHashes) {
+        if (leafHashes.isEmpty()) {
+            throw new IllegalArgumentException("Merkle tree needs at least one leaf");
+        }
+        byte[][] level = leafHashes.toArray(new byte[0][]);
+        levels.add(level);
+        while (level.length > 1) {
+            byte[][] parent = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parent.length; i++) {
+                int left = 2 * i;
+                parent[i] = left + 1 < level.length ? nodeHash(digest, level[left], level[left + 1]) : level[left];
+            }
+            levels.add(parent);
+            level = parent;
+        }
+    }
+
+    public byte[] root() {
+        return levels.get(levels.size() - 1)[0];
+    }
+
+    public int leafCount() {
+        return levels.get(0).length;
+    }
+
+    public List<byte[]> proof(int index) {
+        if (index < 0 || index >= leafCount()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        List<byte[]> proof = new ArrayList<>(levels.size() - 1);
+        for (int depth = 0; depth < levels.size() - 1; depth++) {
+            byte[][] level = levels.get(depth);
+            int sibling = index ^ 1;
+            if (sibling < level.length) {
+                proof.add(level[sibling]);
+            }
+            index >>= 1;
+        }
+        return proof;
+    }
+
+    public static byte[] leafHash(MessageDigest digest, byte[] nonce, byte[] data) {
+        digest.reset();
+        digest.update(LEAF_PREFIX);
+        digest.update(nonce);
+        return digest.digest(data);
+    }
+
+    /**
+     * Tính lại root từ leaf hash và proof; trả null nếu proof không khớp với (index, leafCount)
+     */
+    public static byte[] rootFromProof(MessageDigest digest, byte[] leafHash, int index, int leafCount,
+                                       List<byte[]> proof) {
+        if (index < 0 || index >= leafCount) return null;
+        byte[] hash = leafHash;
+        int used = 0;
+        for (int size = leafCount; size > 1; size = (size + 1) / 2) {
+            if ((index & 1) == 1) {
+                if (used == proof.size()) return null;
+                hash = nodeHash(digest, proof.get(used++), hash);
+            } else if (index + 1 < size) {
+                if (used == proof.size()) return null;
+                hash = nodeHash(digest, hash, proof.get(used++));
+            }
+            index >>= 1;
+        }
+        return used == proof.size() ? hash : null;
+    }
+
+    private static byte[] nodeHash(MessageDigest digest, byte[] left, byte[] right) {
+        digest.reset();
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        return digest.digest(right);
+    }
+}
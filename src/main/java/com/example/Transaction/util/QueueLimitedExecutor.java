@@ -0,0 +1,41 @@
+package com.example.Transaction.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Giới hạn số task đang chờ + đang chạy được gửi qua executor này lên executor chung
+ * - Vượt giới hạn thì ném RejectedExecutionException ngay, không xếp hàng thêm
+ * - Các task gửi thẳng vào executor chung (không qua view này) không bị tính
+ */
+public final class QueueLimitedExecutor implements Executor {
+    private final String name;
+    private final Executor delegate;
+    private final Semaphore permits;
+
+    public QueueLimitedExecutor(String name, Executor delegate, int limit) {
+        this.name = name;
+        this.delegate = delegate;
+        this.permits = new Semaphore(limit);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException(name + " queue limit reached");
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.config.Translator;
+import com.example.Transaction.exception.RSAKeyLoadException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Giữ cặp khóa RSA trong bộ nhớ
+ * - Load keystore một lần khi khởi động
+ * - Keystore trên file system được theo dõi bằng WatchService, thay file là swap khóa mới
+ * - Keystore trong classpath không thay đổi lúc chạy nên không theo dõi
+ */
+@Slf4j
+@Component
+@DependsOn("translator")
+public class RSAKeyProvider {
+    private static final String KEYSTORE_TYPE = "PKCS12";
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final String WATCHER_THREAD_NAME = "rsa-keystore-watcher";
+
+    @Value("${rsa.keystore.path}")
+    private String keystorePath;
+
+    @Value("${rsa.keystore.password}")
+    private String keystorePassword;
+
+    @Value("${rsa.key.alias}")
+    private String keyAlias;
+
+    private final AtomicReference<KeyMaterial> current = new AtomicReference<>();
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    /**
+     * Cặp khóa bất biến, được thay thế nguyên khối khi reload
+     */
+    public record KeyMaterial(PrivateKey privateKey, PublicKey publicKey) {
+    }
+
+    @PostConstruct
+    void init() {
+        current.set(load());
+        if (!keystorePath.startsWith(CLASSPATH_PREFIX)) {
+            startWatcher();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("Failed to close keystore watcher", e);
+        }
+        watcherThread.interrupt();
+    }
+
+    public KeyMaterial current() {
+        return current.get();
+    }
+
+    public PrivateKey getPrivateKey() {
+        return current.get().privateKey();
+    }
+
+    public PublicKey getPublicKey() {
+        return current.get().publicKey();
+    }
+
+    /**
+     * Đọc lại keystore và swap khóa mới
+     * Nếu file mới lỗi (đang ghi dở, sai password...) thì giữ nguyên khóa cũ
+     */
+    public boolean reload() {
+        try {
+            current.set(load());
+            log.info("RSA key material reloaded for alias: {}", keyAlias);
+            return true;
+        } catch (RSAKeyLoadException e) {
+            log.error("Keystore reload failed, keeping previous key material", e);
+            return false;
+        }
+    }
+
+    /* ========== LOAD KEYSTORE ========== */
+    private KeyMaterial load() {
+        KeyStore keyStore = loadKeyStore();
+        try {
+            PrivateKey privateKey = (PrivateKey) keyStore.getKey(keyAlias, keystorePassword.toCharArray());
+            if (privateKey == null) {
+                throw new RSAKeyLoadException(Translator.toLocale("rsa.private.key.notfound", keyAlias));
+            }
+            Certificate certificate = keyStore.getCertificate(keyAlias);
+            if (certificate == null || certificate.getPublicKey() == null) {
+                throw new RSAKeyLoadException(Translator.toLocale("rsa.public.key.notfound", keyAlias));
+            }
+            return new KeyMaterial(privateKey, certificate.getPublicKey());
+        } catch (RSAKeyLoadException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to load key pair for alias: {}", keyAlias, e);
+            throw new RSAKeyLoadException(Translator.toLocale("rsa.private.key.failed"), e);
+        }
+    }
+
+    private KeyStore loadKeyStore() {
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KEYSTORE_TYPE);
+
+            InputStream is;
+            if (keystorePath.startsWith(CLASSPATH_PREFIX)) {
+                String path = keystorePath.substring(CLASSPATH_PREFIX.length());
+                log.info("Loading keystore from classpath: {}", path);
+                is = new ClassPathResource(path).getInputStream();
+            } else {
+                log.info("Loading keystore from file system: {}", keystorePath);
+                is = Files.newInputStream(Paths.get(keystorePath));
+            }
+
+            try (is) {
+                keyStore.load(is, keystorePassword.toCharArray());
+                log.info("Keystore loaded successfully");
+                return keyStore;
+            }
+        } catch (Exception e) {
+            log.error("Failed to load PKCS12 keystore from: {}", keystorePath, e);
+            throw new RSAKeyLoadException(
+                    Translator.toLocale("rsa.private.key.notfound", keyAlias), e
+            );
+        }
+    }
+
+    /* ========== WATCH KEYSTORE ========== */
+    private void startWatcher() {
+        Path file = Paths.get(keystorePath).toAbsolutePath();
+        Path dir = file.getParent();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("Keystore hot reload disabled, cannot watch: {}", dir, e);
+            return;
+        }
+
+        watcherThread = new Thread(() -> watchLoop(file.getFileName()), WATCHER_THREAD_NAME);
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        log.info("Watching keystore for changes: {}", file);
+    }
+
+    private void watchLoop(Path fileName) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    reload();
+                }
+                if (!key.reset()) {
+                    log.warn("Keystore directory no longer watchable, hot reload stopped");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // shutdown
+        }
+    }
+}
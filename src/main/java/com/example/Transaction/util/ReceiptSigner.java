@@ -0,0 +1,282 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.dto.response.TransactionResponse;
+import com.example.Transaction.dto.response.TransferReceipt;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ký biên nhận giao dịch theo batch: một chữ ký RSA cho cả batch thay vì mỗi response một chữ ký
+ * - Thread gọi chỉ tính leaf hash (SHA-256 trên dạng chuẩn của response + nonce ngẫu nhiên) rồi đưa vào queue
+ * - Thread ký gom leaf trong window-millis tính từ leaf đầu tiên (hoặc tới max-batch-size), dựng MerkleTree,
+ *   ký "root|signedAt|leafCount" bằng RSAUtils.sign rồi trả mỗi response root + chữ ký + proof của nó;
+ *   trong lúc ký, batch tiếp theo đã gom tiếp nên độ trễ thêm tối đa khoảng window-millis + một lần ký
+ * - Nonce để proof không làm lộ hash có thể đoán của response khác trong cùng batch
+ * - Ký lỗi hoặc queue đầy: receipt null, response vẫn trả về; client lấy lại biên nhận qua /transactions/status
+ * - Dạng chuẩn: transactionId, sourceAccount, destAccount, amount (bỏ số 0 cuối), time (ISO_LOCAL_DATE_TIME),
+ *   mỗi field UTF-8 có 4 byte độ dài big-endian phía trước
+ * - Metric: receipt.batch.size, receipt.sign, receipt.failures
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReceiptSigner {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final String SEPARATOR = "|";
+    private static final int NONCE_LENGTH = 16;
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final RSAUtils rsaUtils;
+    private final CryptoPool cryptoPool;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${receipt.enabled}")
+    private boolean enabled;
+
+    @Value("${receipt.window-millis}")
+    private long windowMillis;
+
+    @Value("${receipt.max-batch-size}")
+    private int maxBatchSize;
+
+    @Value("${receipt.queue-capacity}")
+    private int queueCapacity;
+
+    private record Pending(byte[] leaf, byte[] nonce, CompletableFuture<TransferReceipt> future) {
+    }
+
+    @FunctionalInterface
+    private interface DigestFunction<R> {
+        R apply(MessageDigest digest);
+    }
+
+    private BlockingQueue<Pending> queue;
+    private DistributionSummary batchSizes;
+    private Timer signTimer;
+    private Counter failures;
+
+    private Thread worker;
+    private volatile boolean closed;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchSizes = DistributionSummary.builder("receipt.batch.size")
+                .description("Responses covered by one receipt signature")
+                .register(meterRegistry);
+        signTimer = Timer.builder("receipt.sign")
+                .description("Merkle tree and RSA signature of one receipt batch")
+                .register(meterRegistry);
+        failures = Counter.builder("receipt.failures")
+                .description("Responses returned without a receipt")
+                .register(meterRegistry);
+
+        worker = new Thread(this::signLoop, "receipt-signer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Dừng nhận leaf mới, ký nốt phần đã nhận
+     */
+    @PreDestroy
+    void close() {
+        closed = true;
+        if (worker == null) return;
+        try {
+            worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            fail(pending);
+        }
+    }
+
+    /**
+     * @return future hoàn thành khi batch chứa response đã được ký; receipt null nếu tắt hoặc ký lỗi
+     */
+    public CompletableFuture<TransferReceipt> sign(TransactionResponse response) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        byte[] nonce = new byte[NONCE_LENGTH];
+        cryptoPool.nextBytes(nonce);
+        byte[] leaf = withDigest(digest -> MerkleTree.leafHash(digest, nonce, canonical(response)));
+
+        Pending pending = new Pending(leaf, nonce, new CompletableFuture<>());
+        if (closed || !queue.offer(pending)) {
+            log.warn("Receipt signer queue is full, returning response without receipt");
+            fail(pending);
+        }
+        return pending.future();
+    }
+
+    /**
+     * Kiểm tra proof của response tới root rồi chữ ký của root, không cần batch còn trong bộ nhớ
+     */
+    public boolean verify(TransactionResponse response, TransferReceipt receipt) {
+        if (receipt.getRoot() == null || receipt.getSignature() == null
+                || receipt.getNonce() == null || receipt.getProof() == null) {
+            return false;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] nonce = decoder.decode(receipt.getNonce());
+            List<byte[]> proof = new ArrayList<>(receipt.getProof().size());
+            for (String sibling : receipt.getProof()) {
+                proof.add(decoder.decode(sibling));
+            }
+            byte[] root = withDigest(digest -> MerkleTree.rootFromProof(digest,
+                    MerkleTree.leafHash(digest, nonce, canonical(response)),
+                    receipt.getLeafIndex(), receipt.getLeafCount(), proof));
+
+            return root != null
+                    && MessageDigest.isEqual(root, decoder.decode(receipt.getRoot()))
+                    && rsaUtils.verify(signedData(receipt.getRoot(), receipt.getSignedAt(), receipt.getLeafCount()),
+                    receipt.getSignature());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void signLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                signBatch(batch);
+                return;
+            }
+            signBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void signBatch(List<Pending> batch) {
+        if (batch.isEmpty()) return;
+        long start = System.nanoTime();
+        try {
+            List<byte[]> leaves = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                leaves.add(pending.leaf());
+            }
+            MerkleTree tree = withDigest(digest -> new MerkleTree(digest, leaves));
+
+            Base64.Encoder encoder = Base64.getEncoder();
+            String root = encoder.encodeToString(tree.root());
+            long signedAt = System.currentTimeMillis();
+            String signature = rsaUtils.sign(signedData(root, signedAt, batch.size()));
+
+            for (int i = 0; i < batch.size(); i++) {
+                List<String> proof = new ArrayList<>();
+                for (byte[] sibling : tree.proof(i)) {
+                    proof.add(encoder.encodeToString(sibling));
+                }
+                batch.get(i).future().complete(TransferReceipt.builder()
+                        .root(root)
+                        .signature(signature)
+                        .signedAt(signedAt)
+                        .leafIndex(i)
+                        .leafCount(batch.size())
+                        .nonce(encoder.encodeToString(batch.get(i).nonce()))
+                        .proof(proof)
+                        .build());
+            }
+            batchSizes.record(batch.size());
+            signTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            log.error("Signing receipt batch of {} failed", batch.size(), e);
+            batch.forEach(this::fail);
+        }
+    }
+
+    private void fail(Pending pending) {
+        failures.increment();
+        pending.future().complete(null);
+    }
+
+    private <R> R withDigest(DigestFunction<R> fn) {
+        try {
+            return cryptoPool.withDigest(DIGEST_ALGORITHM, fn::apply);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " not available", e);
+        }
+    }
+
+    private static String signedData(String root, long signedAt, int leafCount) {
+        return root + SEPARATOR + signedAt + SEPARATOR + leafCount;
+    }
+
+    private static byte[] canonical(TransactionResponse response) {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             DataOutputStream out = new DataOutputStream(bytes)) {
+            writeField(out, response.getTransactionId());
+            writeField(out, response.getSourceAccount());
+            writeField(out, response.getDestAccount());
+            writeField(out, response.getAmount() == null ? null : response.getAmount().stripTrailingZeros().toPlainString());
+            writeField(out, response.getTime() == null ? null : response.getTime().format(FORMATTER));
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * null ghi độ dài -1, phân biệt với chuỗi rỗng
+     */
+    private static void writeField(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+}
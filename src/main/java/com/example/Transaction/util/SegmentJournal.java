@@ -0,0 +1,386 @@
+package com.example.Transaction.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal append-only trên file, chia segment
+ * - Record đóng khung: length(4) + CRC32C(4) + payload
+ * - Group commit: một thread fsync cho mọi record đã ghi kể từ lần fsync trước,
+ *   trong lúc fsync chạy các record mới dồn lại cho lần sau
+ * - append() trả future, complete khi record đã fsync
+ * - Drainer định kỳ đóng segment đang ghi và đưa các segment đã đóng cho applier theo batch, xong thì xóa file
+ * - Khởi động lại: mọi segment còn trên đĩa được drain lại, applier phải chịu được record trùng
+ * - Ghi lỗi giữa frame: cắt segment về offset tốt cuối cùng rồi ghi tiếp; cắt không được thì journal
+ *   ngừng nhận append, để record ack sau đó không nằm sau một frame hỏng
+ * - Record hỏng / ghi dở chỉ được bỏ qua ở cuối segment cuối cùng còn trên đĩa lúc khởi động (crash giữa chừng,
+ *   chưa fsync nên chưa từng được ack). Frame hỏng trong segment đã đóng và fsync thì dừng drain, giữ file,
+ *   log error để người vận hành xử lý
+ * - Tạo segment mới thì fsync cả thư mục, không thì sau crash file (cùng các record đã ack trong nó) có thể mất
+ */
+@Slf4j
+public final class SegmentJournal implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Mở file segment để ghi, tách ra để test giả lập lỗi ghi
+     */
+    @FunctionalInterface
+    interface SegmentOpener {
+        FileChannel open(Path path) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface Applier {
+        /**
+         * Ghi một batch record vào nơi lưu trữ chính, ném exception thì segment được thử lại ở lần drain sau
+         */
+        void apply(List<byte[]> records);
+    }
+
+    private final Path dir;
+    private final long segmentSize;
+    private final long drainIntervalMillis;
+    private final int drainBatchSize;
+    private final Applier applier;
+    private final SegmentOpener opener;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition hasPending = appendLock.newCondition();
+    private List<CompletableFuture<Void>> pending = new ArrayList<>();
+    private FileChannel active;
+    private volatile Path activePath;
+    private long activeSize;
+    private long nextSegmentId;
+    private IOException poisoned;
+    /**
+     * Segment cuối còn trên đĩa lúc khởi động, là segment duy nhất được phép có frame ghi dở
+     */
+    private final Path recoveredTail;
+    /**
+     * Độ dài đã fsync của các segment được roll trong process này; phần sau đó (nếu có) chưa từng được ack
+     */
+    private final Map<Path, Long> sealedLengths = new ConcurrentHashMap<>();
+    private volatile Path corruptSegment;
+
+    private final Thread flusher;
+    private final Thread drainer;
+    private volatile boolean closed;
+
+    public SegmentJournal(Path dir, long segmentSize, long drainIntervalMillis, int drainBatchSize,
+                          Applier applier) throws IOException {
+        this(dir, segmentSize, drainIntervalMillis, drainBatchSize, applier,
+                path -> FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    }
+
+    SegmentJournal(Path dir, long segmentSize, long drainIntervalMillis, int drainBatchSize,
+                   Applier applier, SegmentOpener opener) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.drainIntervalMillis = drainIntervalMillis;
+        this.drainBatchSize = drainBatchSize;
+        this.applier = applier;
+        this.opener = opener;
+
+        Files.createDirectories(dir);
+        List<Path> existing = segments();
+        recoveredTail = existing.isEmpty() ? null : existing.get(existing.size() - 1);
+        nextSegmentId = recoveredTail == null ? 0 : segmentId(recoveredTail) + 1;
+        if (!existing.isEmpty()) {
+            log.info("Journal has {} unapplied segments, replaying", existing.size());
+        }
+        openSegment();
+
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        drainer = new Thread(this::drainLoop, "journal-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    public CompletableFuture<Void> append(byte[] record) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + record.length);
+        frame.putInt(record.length).putInt(crc(record)).put(record).flip();
+
+        appendLock.lock();
+        try {
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("Journal is closed"));
+                return future;
+            }
+            if (poisoned != null) {
+                future.completeExceptionally(new IllegalStateException("Journal stopped after a failed write", poisoned));
+                return future;
+            }
+            if (activeSize > 0 && activeSize + frame.remaining() > segmentSize) {
+                rollLocked();
+            }
+            try {
+                while (frame.hasRemaining()) {
+                    active.write(frame);
+                }
+            } catch (IOException e) {
+                discardPartialFrameLocked(e);
+                throw e;
+            }
+            activeSize += frame.limit();
+            pending.add(future);
+            hasPending.signal();
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        } finally {
+            appendLock.unlock();
+        }
+        return future;
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            closed = true;
+            hasPending.signal();
+        } finally {
+            appendLock.unlock();
+        }
+        drainer.interrupt();
+        try {
+            flusher.join(SHUTDOWN_TIMEOUT_MILLIS);
+            drainer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        appendLock.lock();
+        try {
+            active.force(false);
+            active.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal segment {}", activePath, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /* ========== GROUP COMMIT ========== */
+    private void flushLoop() {
+        while (true) {
+            List<CompletableFuture<Void>> batch;
+            FileChannel channel;
+            appendLock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    hasPending.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) return;
+                batch = pending;
+                pending = new ArrayList<>();
+                channel = active;
+            } finally {
+                appendLock.unlock();
+            }
+
+            try {
+                channel.force(false);
+                batch.forEach(f -> f.complete(null));
+            } catch (ClosedChannelException e) {
+                // Segment vừa được roll: rollLocked() đã fsync trước khi đóng
+                batch.forEach(f -> f.complete(null));
+            } catch (IOException e) {
+                log.error("Journal fsync failed", e);
+                batch.forEach(f -> f.completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * Cắt phần frame ghi dở về offset tốt cuối cùng, để record ghi sau không nằm sau frame hỏng
+     * Cắt không được thì ngừng nhận append; drain vẫn chỉ đọc tới offset tốt nhờ sealedLengths khi roll
+     * Gọi khi đang giữ appendLock
+     */
+    private void discardPartialFrameLocked(IOException cause) {
+        try {
+            active.truncate(activeSize);
+            active.position(activeSize);
+            log.warn("Journal write to {} failed, truncated back to {} bytes", activePath, activeSize, cause);
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            poisoned = e;
+            log.error("Journal write to {} failed and the partial frame could not be removed, " +
+                    "rejecting further appends", activePath, e);
+        }
+    }
+
+    // Gọi khi đang giữ appendLock
+    private void rollLocked() throws IOException {
+        active.force(false);
+        pending.forEach(f -> f.complete(null));
+        pending.clear();
+        active.close();
+        sealedLengths.put(activePath, activeSize);
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        activePath = dir.resolve(SEGMENT_PREFIX + String.format("%020d", nextSegmentId++) + SEGMENT_SUFFIX);
+        active = opener.open(activePath);
+        activeSize = 0;
+        forceDirectory();
+    }
+
+    private void forceDirectory() throws IOException {
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    /* ========== DRAIN ========== */
+    private void drainLoop() {
+        while (!closed) {
+            try {
+                if (corruptSegment != null) {
+                    // Record sau frame hỏng không được apply vượt qua chỗ hỏng, chờ người vận hành
+                    TimeUnit.MILLISECONDS.sleep(drainIntervalMillis);
+                    continue;
+                }
+                appendLock.lock();
+                try {
+                    if (activeSize > 0 && !closed) {
+                        rollLocked();
+                    }
+                } finally {
+                    appendLock.unlock();
+                }
+
+                for (Path segment : segments()) {
+                    if (segment.equals(activePath) || closed) break;
+                    if (!drain(segment)) break;
+                    Files.delete(segment);
+                    sealedLengths.remove(segment);
+                }
+                TimeUnit.MILLISECONDS.sleep(drainIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                log.error("Journal drain failed, will retry", e);
+            }
+        }
+    }
+
+    /**
+     * Đọc segment tới độ dài đã fsync (sealedLengths) hoặc hết file với segment có từ trước khi khởi động
+     * Trả false nếu applier lỗi hoặc segment hỏng, khi đó segment được giữ lại
+     */
+    private boolean drain(Path segment) throws IOException {
+        long limit = sealedLengths.getOrDefault(segment, Files.size(segment));
+        List<byte[]> batch = new ArrayList<>(drainBatchSize);
+        int applied = 0;
+        long position = 0;
+        try (InputStream file = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (position < limit) {
+                String problem = null;
+                byte[] record = null;
+                if (limit - position < HEADER_SIZE) {
+                    problem = "Truncated record header";
+                } else {
+                    int length = in.readInt();
+                    int expectedCrc = in.readInt();
+                    if (length < 0 || length > limit - position - HEADER_SIZE) {
+                        problem = "Invalid record length";
+                    } else {
+                        record = new byte[length];
+                        in.readFully(record);
+                        if (crc(record) != expectedCrc) {
+                            problem = "CRC mismatch";
+                        }
+                    }
+                }
+                if (problem != null) {
+                    if (!segment.equals(recoveredTail)) {
+                        // Phần trước chỗ hỏng vẫn hợp lệ, apply trước khi dừng
+                        if (!batch.isEmpty()) apply(segment, batch);
+                        corruptSegment = segment;
+                        log.error("{} in closed journal segment {} at offset {} after {} records; records from " +
+                                        "there on were acknowledged but cannot be read. Draining stopped, segment kept",
+                                problem, segment, position, applied + batch.size());
+                        return false;
+                    }
+                    // Crash giữa lúc ghi: phần cuối chưa fsync nên chưa từng được ack
+                    log.warn("{} at end of journal segment {} left by a crash after {} records, skipping rest",
+                            problem, segment, applied + batch.size());
+                    break;
+                }
+                position += HEADER_SIZE + record.length;
+
+                batch.add(record);
+                if (batch.size() == drainBatchSize) {
+                    if (!apply(segment, batch)) return false;
+                    applied += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty() && !apply(segment, batch)) return false;
+        applied += batch.size();
+        log.debug("Journal segment {} applied, {} records", segment.getFileName(), applied);
+        return true;
+    }
+
+    private boolean apply(Path segment, List<byte[]> batch) {
+        try {
+            applier.apply(batch);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Applying journal segment {} failed, will retry", segment.getFileName(), e);
+            return false;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int crc(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+}
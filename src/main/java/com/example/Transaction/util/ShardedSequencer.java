@@ -0,0 +1,118 @@
+package com.example.Transaction.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequencer single-writer theo shard
+ * - Key được hash vào một trong N shard, mỗi shard có một queue và đúng một thread ghi
+ * - Thread ghi lấy liên tiếp tối đa maxBatchSize phần tử trong queue và giao cho writer một lần
+ * - Writer có trách nhiệm complete future của từng phần tử; writer ném lỗi thì cả batch lỗi theo
+ * - Queue có giới hạn, đầy thì future lỗi ngay với RejectedExecutionException, không chặn thread gọi
+ */
+@Slf4j
+public final class ShardedSequencer<T, R> implements AutoCloseable {
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    public record Task<T, R>(T item, CompletableFuture<R> future) {
+    }
+
+    @FunctionalInterface
+    public interface BatchWriter<T, R> {
+        void write(List<Task<T, R>> batch);
+    }
+
+    private final List<Shard> shards;
+    private final int maxBatchSize;
+    private final BatchWriter<T, R> writer;
+    private volatile boolean closed;
+
+    public ShardedSequencer(String threadPrefix, int shardCount, int maxBatchSize, int queueCapacity,
+                            BatchWriter<T, R> writer) {
+        this.maxBatchSize = maxBatchSize;
+        this.writer = writer;
+        this.shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(queueCapacity);
+            shard.thread = new Thread(shard::drain, threadPrefix + i);
+            shard.thread.setDaemon(true);
+            shards.add(shard);
+        }
+        shards.forEach(shard -> shard.thread.start());
+    }
+
+    public CompletableFuture<R> submit(Object key, T item) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException("Sequencer is closed"));
+            return future;
+        }
+        Shard shard = shards.get(Math.floorMod(key.hashCode(), shards.size()));
+        if (!shard.queue.offer(new Task<>(item, future))) {
+            future.completeExceptionally(new RejectedExecutionException("Sequencer shard queue is full"));
+        }
+        return future;
+    }
+
+    /**
+     * Dừng nhận task mới, chờ các shard ghi nốt phần đã nhận
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Task<T, R> task;
+            while ((task = shard.queue.poll()) != null) {
+                task.future().completeExceptionally(new IllegalStateException("Sequencer is closed"));
+            }
+        }
+    }
+
+    private final class Shard {
+        private final BlockingQueue<Task<T, R>> queue;
+        private Thread thread;
+
+        private Shard(int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        private void drain() {
+            List<Task<T, R>> batch = new ArrayList<>(maxBatchSize);
+            while (!closed || !queue.isEmpty()) {
+                Task<T, R> first;
+                try {
+                    first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (first == null) continue;
+
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                try {
+                    writer.write(batch);
+                } catch (RuntimeException e) {
+                    log.error("Sequenced batch of {} failed", batch.size(), e);
+                    for (Task<T, R> task : batch) {
+                        task.future().completeExceptionally(e);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.Transaction.util;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter các transactionId đã ghi gần đây
+ * - mightContain = false: chắc chắn chưa ghi (trong cửa sổ nhớ), không cần đọc DB
+ * - mightContain = true: có thể đã ghi, phải kiểm tra DB
+ * - Hai thế hệ: thế hệ hiện tại đầy thì thay thế thế hệ cũ, bộ nhớ và tỉ lệ false positive không tăng theo thời gian
+ * - ID đã rơi khỏi filter (hoặc ghi trước khi khởi động) vẫn được chặn bởi unique constraint trong DB
+ */
+@Component
+public class TransactionIdFilter {
+    private static final double LN2 = Math.log(2);
+
+    @Value("${idempotency.filter.expected-insertions}")
+    private int expectedInsertions;
+
+    @Value("${idempotency.filter.false-positive-rate}")
+    private double falsePositiveRate;
+
+    private int numBits;
+    private int numHashes;
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    @PostConstruct
+    void init() {
+        numBits = (int) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * LN2));
+        current = new Generation(numBits);
+        previous = new Generation(numBits);
+    }
+
+    public boolean mightContain(String transactionId) {
+        long h1 = hash(transactionId);
+        long h2 = mix(h1);
+        return current.mightContain(h1, h2) || previous.mightContain(h1, h2);
+    }
+
+    public void put(String transactionId) {
+        long h1 = hash(transactionId);
+        long h2 = mix(h1);
+        Generation generation = current;
+        generation.put(h1, h2);
+        if (generation.count.incrementAndGet() >= expectedInsertions) {
+            rotate(generation);
+        }
+    }
+
+    private synchronized void rotate(Generation full) {
+        if (current != full) return;
+        previous = full;
+        current = new Generation(numBits);
+    }
+
+    // FNV-1a 64-bit trên UTF-8 bytes
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // MurmurHash3 fmix64, cho hash thứ hai độc lập với hash thứ nhất
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h | 1;
+    }
+
+    private final class Generation {
+        private final AtomicLongArray bits;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Generation(int numBits) {
+            bits = new AtomicLongArray((numBits + 63) >>> 6);
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < numHashes; i++) {
+                int bit = index(h1 + i * h2);
+                if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void put(long h1, long h2) {
+            for (int i = 0; i < numHashes; i++) {
+                int bit = index(h1 + i * h2);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long value;
+                do {
+                    value = bits.get(word);
+                } while ((value & mask) == 0 && !bits.compareAndSet(word, value, value | mask));
+            }
+        }
+
+        private int index(long combined) {
+            return (int) Long.remainderUnsigned(combined, numBits);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.dto.request.TransactionBatchRequest;
+import com.example.Transaction.dto.request.TransactionEnvelopeRequest;
+import com.example.Transaction.dto.request.TransactionRequest;
+import com.example.Transaction.exception.AppException;
+import com.example.Transaction.metrics.TransferMetrics;
+import com.example.Transaction.metrics.TransferMetrics.Rejection;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.security.interfaces.RSAPublicKey;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Chặn request rác / lạm dụng trước khi tốn RSA private-key, mỗi bước chỉ vài phép so sánh
+ * - Rate limit theo client: token bucket dạng GCRA, một AtomicLong (CAS) mỗi stripe, client hash vào stripe
+ *   nên bộ nhớ cố định; hai client trùng stripe dùng chung bucket
+ * - Hình dạng ciphertext: đúng Base64 và đúng độ dài của một block RSA theo modulus khóa hiện tại
+ * - Giới hạn số giao dịch đang xử lý trên toàn instance, hết permit thì trả 503 ngay
+ * - Batch tính theo số giao dịch trên bucket và giới hạn in-flight riêng (admission.batch.*), để batch hợp lệ
+ *   (tới TransactionBatchRequest.MAX_BATCH_SIZE) không bị burst / in-flight của request đơn chặn;
+ *   burst và max-in-flight của batch phải chứa được batch lớn nhất, kiểm tra lúc khởi động
+ */
+@Component
+@RequiredArgsConstructor
+public class TransferAdmission {
+    private static final int GCM_IV_BASE64_LENGTH = 16;
+
+    private final RSAKeyProvider keyProvider;
+    private final TransferMetrics transferMetrics;
+
+    @Value("${admission.rate-limit.permits-per-second}")
+    private double permitsPerSecond;
+
+    @Value("${admission.rate-limit.burst}")
+    private int burst;
+
+    @Value("${admission.rate-limit.stripes}")
+    private int stripes;
+
+    @Value("${admission.max-in-flight}")
+    private int maxInFlight;
+
+    @Value("${admission.max-envelope-payload-length}")
+    private int maxEnvelopePayloadLength;
+
+    @Value("${admission.batch.transfers-per-second}")
+    private double batchTransfersPerSecond;
+
+    @Value("${admission.batch.burst}")
+    private int batchBurst;
+
+    @Value("${admission.batch.max-in-flight}")
+    private int batchMaxInFlight;
+
+    private Bucket singleBucket;
+    private Bucket batchBucket;
+    private Semaphore inFlight;
+    private Semaphore batchInFlight;
+
+    @PostConstruct
+    void init() {
+        if (batchBurst < TransactionBatchRequest.MAX_BATCH_SIZE || batchMaxInFlight < TransactionBatchRequest.MAX_BATCH_SIZE) {
+            throw new IllegalStateException("admission.batch.burst and admission.batch.max-in-flight must be at least "
+                    + TransactionBatchRequest.MAX_BATCH_SIZE + " (max batch size)");
+        }
+        singleBucket = new Bucket(permitsPerSecond, burst, stripes);
+        batchBucket = new Bucket(batchTransfersPerSecond, batchBurst, stripes);
+        inFlight = new Semaphore(maxInFlight);
+        batchInFlight = new Semaphore(batchMaxInFlight);
+    }
+
+    /**
+     * Permit giữ một chỗ mỗi giao dịch trong giới hạn in-flight, trả lại khi close (gọi nhiều lần không sao)
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Semaphore semaphore;
+        private final int permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore semaphore, int permits) {
+            this.semaphore = semaphore;
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release(permits);
+            }
+        }
+    }
+
+    public Permit admit(String clientId, TransactionRequest request) {
+        checkRate(singleBucket, clientId, 1);
+        int blockLength = rsaBlockBase64Length();
+        checkShape(isRsaBlock(request, blockLength));
+        return acquire(inFlight, 1);
+    }
+
+    /**
+     * Batch tính mỗi giao dịch một token và một permit in-flight, trên bucket và semaphore của batch
+     */
+    public Permit admit(String clientId, List<TransactionRequest> requests) {
+        checkRate(batchBucket, clientId, requests.size());
+        int blockLength = rsaBlockBase64Length();
+        for (TransactionRequest request : requests) {
+            checkShape(isRsaBlock(request, blockLength));
+        }
+        return acquire(batchInFlight, requests.size());
+    }
+
+    public Permit admit(String clientId, TransactionEnvelopeRequest request) {
+        checkRate(singleBucket, clientId, 1);
+        checkShape(isRsaBlock(request.getEncryptedKey(), rsaBlockBase64Length())
+                && request.getIv().length() == GCM_IV_BASE64_LENGTH && isBase64(request.getIv())
+                && request.getPayload().length() <= maxEnvelopePayloadLength && isBase64(request.getPayload()));
+        return acquire(inFlight, 1);
+    }
+
+    /* ========== RATE LIMIT ========== */
+    /**
+     * Token bucket GCRA theo client: một AtomicLong (CAS) mỗi stripe, client hash vào stripe
+     */
+    private static final class Bucket {
+        private final int burst;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final AtomicLongArray theoreticalArrival;
+
+        private Bucket(double permitsPerSecond, int burst, int stripes) {
+            this.burst = burst;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+            this.toleranceNanos = intervalNanos * burst;
+            this.theoreticalArrival = new AtomicLongArray(Integer.highestOneBit(Math.max(stripes, 1)));
+            long now = System.nanoTime();
+            for (int i = 0; i < theoreticalArrival.length(); i++) {
+                theoreticalArrival.set(i, now);
+            }
+        }
+
+        private boolean tryAcquire(String clientId, int permits) {
+            if (permits > burst) return false;
+            int stripe = spread(clientId.hashCode()) & (theoreticalArrival.length() - 1);
+            long cost = intervalNanos * permits;
+            while (true) {
+                long now = System.nanoTime();
+                long tat = theoreticalArrival.get(stripe);
+                long next = (tat - now < 0 ? now : tat) + cost;
+                if (next - now > toleranceNanos) return false;
+                if (theoreticalArrival.compareAndSet(stripe, tat, next)) return true;
+            }
+        }
+    }
+
+    private void checkRate(Bucket bucket, String clientId, int permits) {
+        if (!bucket.tryAcquire(clientId, permits)) {
+            reject(Rejection.RATE_LIMITED, "transaction.rate.limited", HttpStatus.TOO_MANY_REQUESTS);
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /* ========== SHAPE ========== */
+    private void checkShape(boolean wellFormed) {
+        if (!wellFormed) {
+            reject(Rejection.MALFORMED, "transaction.malformed", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private boolean isRsaBlock(TransactionRequest request, int blockLength) {
+        return isRsaBlock(request.getTransactionId(), blockLength)
+                && isRsaBlock(request.getSourceAccount(), blockLength)
+                && isRsaBlock(request.getDestAccount(), blockLength)
+                && isRsaBlock(request.getAmount(), blockLength)
+                && (request.getTime() == null || isRsaBlock(request.getTime(), blockLength));
+    }
+
+    /**
+     * Ciphertext RSA-OAEP luôn dài đúng bằng modulus, Base64 chuẩn có padding
+     */
+    private int rsaBlockBase64Length() {
+        int blockBytes = (((RSAPublicKey) keyProvider.getPublicKey()).getModulus().bitLength() + 7) / 8;
+        return (blockBytes + 2) / 3 * 4;
+    }
+
+    private static boolean isRsaBlock(String value, int base64Length) {
+        return value != null && value.length() == base64Length && isBase64(value);
+    }
+
+    private static boolean isBase64(String value) {
+        int length = value.length();
+        if (length == 0 || length % 4 != 0) return false;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '=') {
+                // Chỉ được ở 2 ký tự cuối, và sau '=' không còn gì khác
+                if (i < length - 2 || (i == length - 2 && value.charAt(length - 1) != '=')) return false;
+            } else if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '+' || c == '/')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* ========== IN-FLIGHT ========== */
+    /**
+     * Lấy đủ permits một lần hoặc không lấy gì, không giữ một phần trong lúc chờ
+     */
+    private Permit acquire(Semaphore semaphore, int permits) {
+        if (!semaphore.tryAcquire(permits)) {
+            reject(Rejection.OVERLOADED, "transaction.overloaded", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new Permit(semaphore, permits);
+    }
+
+    private void reject(Rejection rejection, String messageKey, HttpStatus status) {
+        transferMetrics.recordRejection(rejection);
+        throw new AppException(messageKey, status);
+    }
+}
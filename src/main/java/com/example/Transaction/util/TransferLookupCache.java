@@ -0,0 +1,157 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.dto.StoredTransfer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache tra cứu giao dịch theo transactionId, đặt trước transaction_history
+ * - Chỉ giữ StoredTransfer (account bản AES), không có account plain text trên heap
+ * - Giới hạn max-size (LRU) và ttl-seconds; chia STRIPES phần, mỗi phần một LinkedHashMap access-order dưới lock riêng
+ * - Kết quả "không có" giữ negative-ttl-seconds để poll liên tục một transactionId chưa ghi không đọc DB mỗi lần;
+ *   giao dịch ghi trên instance khác được thấy sau tối đa khoảng này
+ * - Giá trị AES trong cache giữ key lúc ghi: key cũ phải còn trong encryption.aes.retired-keys ít nhất ttl-seconds
+ *   sau khi đổi key-id
+ * - Metric: lookup.cache.requests (result=hit|negative_hit|miss), lookup.cache.evictions (cause=size|expired),
+ *   lookup.cache.size
+ */
+@Component
+public class TransferLookupCache {
+    /**
+     * Giá trị trả về khi transactionId đã được tra và không tồn tại, so sánh bằng ==
+     */
+    public static final StoredTransfer NOT_FOUND = new StoredTransfer(null, null, null, null, null);
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public TransferLookupCache(@Value("${lookup-cache.max-size}") int maxSize,
+                               @Value("${lookup-cache.ttl-seconds}") long ttlSeconds,
+                               @Value("${lookup-cache.negative-ttl-seconds}") long negativeTtlSeconds,
+                               MeterRegistry registry) {
+        int stripeCapacity = Math.max(1, (maxSize + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+
+        hits = requestCounter(registry, "hit");
+        negativeHits = requestCounter(registry, "negative_hit");
+        misses = requestCounter(registry, "miss");
+        sizeEvictions = evictionCounter(registry, "size");
+        expiredEvictions = evictionCounter(registry, "expired");
+        Gauge.builder("lookup.cache.size", this, TransferLookupCache::size)
+                .description("Entries in the transfer lookup cache")
+                .register(registry);
+    }
+
+    /**
+     * @return giao dịch đã cache, NOT_FOUND nếu đã tra và không có, null nếu không có trong cache (hoặc đã hết hạn)
+     */
+    public StoredTransfer get(String transactionId) {
+        Stripe stripe = stripe(transactionId);
+        synchronized (stripe) {
+            Entry entry = stripe.get(transactionId);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.expiresAt - System.nanoTime() <= 0) {
+                stripe.remove(transactionId);
+                expiredEvictions.increment();
+                misses.increment();
+                return null;
+            }
+            (entry.value == NOT_FOUND ? negativeHits : hits).increment();
+            return entry.value;
+        }
+    }
+
+    public void put(StoredTransfer transfer) {
+        Stripe stripe = stripe(transfer.transactionId());
+        synchronized (stripe) {
+            stripe.put(transfer.transactionId(), new Entry(transfer, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    /**
+     * Không ghi đè giao dịch vừa được put bởi lần ghi chạy song song với lần đọc DB
+     */
+    public void putNotFound(String transactionId) {
+        Stripe stripe = stripe(transactionId);
+        synchronized (stripe) {
+            Entry existing = stripe.get(transactionId);
+            if (existing != null && existing.value != NOT_FOUND && existing.expiresAt - System.nanoTime() > 0) {
+                return;
+            }
+            stripe.put(transactionId, new Entry(NOT_FOUND, System.nanoTime() + negativeTtlNanos));
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(String transactionId) {
+        int h = transactionId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, String result) {
+        return Counter.builder("lookup.cache.requests")
+                .description("Transfer lookups by cache result")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Counter evictionCounter(MeterRegistry registry, String cause) {
+        return Counter.builder("lookup.cache.evictions")
+                .description("Entries removed from the transfer lookup cache")
+                .tag("cause", cause)
+                .register(registry);
+    }
+
+    private record Entry(StoredTransfer value, long expiresAt) {
+    }
+
+    /**
+     * Phần tử cũ nhất (ít truy cập nhất) bị bỏ khi vượt capacity; đã hết hạn thì tính là expired
+     */
+    private final class Stripe extends LinkedHashMap<String, Entry> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= capacity) return false;
+            (eldest.getValue().expiresAt - System.nanoTime() <= 0 ? expiredEvictions : sizeEvictions).increment();
+            return true;
+        }
+    }
+}
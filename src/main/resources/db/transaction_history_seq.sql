@@ -0,0 +1,17 @@
+-- Chạy một lần trên database đã có dữ liệu, TRƯỚC khi deploy bản dùng sequence cho transaction_history.id
+-- (TransactionHistory.ID_SEQUENCE). Trên MySQL, Hibernate giả lập sequence bằng bảng transaction_history_seq:
+-- mỗi lần cấp block nó đọc next_val = N, dùng các ID từ N - 49 tới N (allocationSize 50) rồi ghi next_val = N + 50.
+-- Nếu để ddl-auto tự tạo bảng, next_val bắt đầu từ 1 và đụng ID cũ của IDENTITY.
+-- Script chỉ tăng next_val, chạy lại nhiều lần vẫn an toàn.
+
+CREATE TABLE IF NOT EXISTS transaction_history_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+INSERT INTO transaction_history_seq (next_val)
+SELECT 1 FROM DUAL
+WHERE NOT EXISTS (SELECT 1 FROM transaction_history_seq);
+
+-- Block đầu tiên bắt đầu ngay sau MAX(id): N - 49 = MAX(id) + 1
+UPDATE transaction_history_seq
+SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 50 FROM transaction_history));
@@ -0,0 +1,34 @@
+package com.example.Transaction.converter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncryptedValueConverterTest {
+    private final EncryptedValueConverter converter = new EncryptedValueConverter();
+
+    @Test
+    void storesRawBytesWithVersionPrefix() {
+        byte[] raw = new byte[32];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = (byte) (i * 7);
+        }
+        String encrypted = Base64.getEncoder().encodeToString(raw);
+
+        byte[] column = converter.convertToDatabaseColumn(encrypted);
+
+        assertThat(column).hasSize(raw.length + 1);
+        assertThat(column.length).isLessThan(encrypted.length());
+        assertThat(converter.convertToEntityAttribute(column)).isEqualTo(encrypted);
+    }
+
+    @Test
+    void readsLegacyBase64Rows() {
+        String legacy = Base64.getEncoder().encodeToString(new byte[32]);
+
+        assertThat(converter.convertToEntityAttribute(legacy.getBytes(StandardCharsets.US_ASCII))).isEqualTo(legacy);
+    }
+}
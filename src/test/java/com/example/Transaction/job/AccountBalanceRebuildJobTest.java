@@ -0,0 +1,133 @@
+package com.example.Transaction.job;
+
+import com.example.Transaction.entity.AccountBalance;
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.repository.AccountBalanceRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.service.IHistoryArchiveService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        // Upsert INSERT ... ON DUPLICATE KEY UPDATE cần chế độ MySQL của H2
+        "spring.datasource.url=jdbc:h2:mem:balance-rebuild;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "balance.rebuild.on-startup=false",
+        "balance.rebuild.chunk-size=2",
+        "balance.rebuild.parallelism=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AccountBalanceRebuildJob.class)
+// Mỗi chunk tự commit như khi chạy thật, không bọc trong transaction của test
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountBalanceRebuildJobTest {
+    @MockBean
+    private IHistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private AccountBalanceRebuildJob job;
+
+    @Autowired
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @Autowired
+    private AccountBalanceRepository accountBalanceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        transactionHistoryRepository.deleteAll();
+        accountBalanceRepository.deleteAll();
+    }
+
+    @Test
+    void rebuiltTotalsMatchLedgerSums() {
+        List<TransactionHistory> legs = new ArrayList<>();
+        transfer(legs, "TX-1", "idx-a", "idx-b", "100.00");
+        transfer(legs, "TX-2", "idx-b", "idx-c", "40.50");
+        transfer(legs, "TX-3", "idx-c", "idx-a", "12.25");
+        transfer(legs, "TX-4", "idx-a", "idx-d", "7.75");
+        transfer(legs, "TX-5", "idx-e", "idx-a", "1.00");
+        transactionHistoryRepository.saveAll(legs);
+        // Số dư lệch của idx-a bị ghi đè, các account còn lại chưa có dòng nào
+        accountBalanceRepository.save(AccountBalance.builder()
+                .accountIndex("idx-a")
+                .totalInDebt(new BigDecimal("999.00"))
+                .totalHave(BigDecimal.ZERO)
+                .updatedAt(LocalDateTime.now())
+                .build());
+
+        assertThat(job.rebuild()).isEqualTo(5);
+
+        List<Map<String, Object>> expected = jdbcTemplate.queryForList(
+                "SELECT account_index, SUM(in_debt) AS in_debt, SUM(have) AS have, SUM(have - in_debt) AS balance " +
+                        "FROM transaction_history GROUP BY account_index");
+        assertThat(expected).hasSize(5);
+        assertThat(accountBalanceRepository.count()).isEqualTo(5);
+        for (Map<String, Object> row : expected) {
+            AccountBalance balance = accountBalanceRepository.findById((String) row.get("ACCOUNT_INDEX")).orElseThrow();
+            assertThat(balance.getTotalInDebt()).isEqualByComparingTo((BigDecimal) row.get("IN_DEBT"));
+            assertThat(balance.getTotalHave()).isEqualByComparingTo((BigDecimal) row.get("HAVE"));
+            assertThat(balance.getBalance()).isEqualByComparingTo((BigDecimal) row.get("BALANCE"));
+        }
+        assertThat(accountBalanceRepository.findById("idx-a").orElseThrow().getBalance())
+                .isEqualByComparingTo("-94.50");
+    }
+
+    @Test
+    void upsertsOverRowInsertedByFirstTransfer() {
+        List<TransactionHistory> legs = new ArrayList<>();
+        transfer(legs, "TX-1", "idx-a", "idx-b", "10.00");
+        transactionHistoryRepository.saveAll(legs);
+        // Giao dịch đầu tiên của idx-b đã tạo dòng balance: rebuild ghi đè bằng upsert, không lỗi duplicate key
+        jdbcTemplate.update("INSERT INTO account_balance (account_index, total_in_debt, total_have, updated_at) " +
+                "VALUES ('idx-b', 0, 10.00, CURRENT_TIMESTAMP)");
+
+        assertThat(job.rebuild()).isEqualTo(2);
+
+        assertThat(accountBalanceRepository.findById("idx-b").orElseThrow().getTotalHave())
+                .isEqualByComparingTo("10.00");
+        assertThat(accountBalanceRepository.findById("idx-a").orElseThrow().getTotalInDebt())
+                .isEqualByComparingTo("10.00");
+    }
+
+    private static void transfer(List<TransactionHistory> legs, String transactionId, String source, String dest,
+                                 String amount) {
+        LocalDateTime time = LocalDateTime.now();
+        legs.add(leg(transactionId, source, new BigDecimal(amount), BigDecimal.ZERO, time));
+        legs.add(leg(transactionId, dest, BigDecimal.ZERO, new BigDecimal(amount), time));
+    }
+
+    private static TransactionHistory leg(String transactionId, String accountIndex, BigDecimal inDebt,
+                                          BigDecimal have, LocalDateTime time) {
+        return TransactionHistory.builder()
+                .transactionId(transactionId)
+                .account("AQEA")
+                .accountIndex(accountIndex)
+                .inDebt(inDebt)
+                .have(have)
+                .time(time)
+                .build();
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.Transaction.job;
+
+import com.example.Transaction.entity.ReencryptionCheckpoint;
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.repository.ReencryptionCheckpointRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.util.AESUtils;
+import com.example.Transaction.util.CryptoPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "encryption.aes.master.key=new-master-key",
+        "encryption.aes.key-id=2",
+        "encryption.aes.retired-keys.1=" + AccountReencryptionJobTest.OLD_MASTER_KEY,
+        "encryption.aes.legacy-cbc-read=false",
+        "encryption.aes.legacy-key-id=1",
+        "reencryption.on-startup=false",
+        "reencryption.chunk-size=2",
+        "reencryption.rows-per-second=20",
+        "reencryption.parallelism=2"
+})
+@Import({AccountReencryptionJob.class, AESUtils.class, CryptoPool.class, AccountReencryptionJobTest.Metrics.class})
+// Job tự commit từng chunk như khi chạy thật, không bọc trong transaction của test
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountReencryptionJobTest {
+    static final String OLD_MASTER_KEY = "old-master-key";
+    private static final int OLD_KEY_ID = 1;
+    private static final int NEW_KEY_ID = 2;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private AccountReencryptionJob job;
+
+    @Autowired
+    private AESUtils aesUtils;
+
+    @Autowired
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @Autowired
+    private ReencryptionCheckpointRepository checkpointRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transactionHistoryRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void resumesFromCheckpointAndRewritesOnlyRemainingRows() throws Exception {
+        List<Long> ids = seed(10);
+        // Lần chạy trước dừng sau dòng thứ 4
+        checkpointRepository.save(ReencryptionCheckpoint.builder()
+                .keyId(NEW_KEY_ID)
+                .lastId(ids.get(3))
+                .rowsRewritten(4L)
+                .updatedAt(LocalDateTime.now())
+                .build());
+
+        assertThat(job.reencrypt()).isEqualTo(6);
+
+        List<TransactionHistory> rows = rowsById();
+        for (int i = 0; i < rows.size(); i++) {
+            assertThat(keyId(rows.get(i).getAccount())).as("row %d", i).isEqualTo(i < 4 ? OLD_KEY_ID : NEW_KEY_ID);
+            assertThat(aesUtils.decryptFromDB(rows.get(i).getAccount())).isEqualTo("account-" + i);
+        }
+        ReencryptionCheckpoint checkpoint = checkpointRepository.findById(NEW_KEY_ID).orElseThrow();
+        assertThat(checkpoint.getLastId()).isEqualTo(ids.get(9));
+        assertThat(checkpoint.getRowsRewritten()).isEqualTo(10L);
+
+        // Đã tới MAX(id): chạy lại không ghi gì
+        assertThat(job.reencrypt()).isZero();
+    }
+
+    @Test
+    void skipsRowsAlreadyUnderCurrentKeyAndKeepsRateLimit() throws Exception {
+        seed(8);
+        TransactionHistory current = rowsById().get(0);
+        current.setAccount(aesUtils.encryptForDB("account-0"));
+        transactionHistoryRepository.save(current);
+
+        long start = System.nanoTime();
+        assertThat(job.reencrypt()).isEqualTo(7);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 8 dòng với 20 dòng/s: ít nhất 400ms
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(380);
+        assertThat(rowsById()).allSatisfy(row -> assertThat(keyId(row.getAccount())).isEqualTo(NEW_KEY_ID));
+    }
+
+    private List<Long> seed(int count) throws Exception {
+        LocalDateTime time = LocalDateTime.now();
+        List<TransactionHistory> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(TransactionHistory.builder()
+                    .transactionId("TX-" + i)
+                    .account(encryptWithOldKey("account-" + i))
+                    .inDebt(BigDecimal.ONE)
+                    .have(BigDecimal.ZERO)
+                    .time(time)
+                    .build());
+        }
+        return transactionHistoryRepository.saveAll(rows).stream().map(TransactionHistory::getId).sorted().toList();
+    }
+
+    private List<TransactionHistory> rowsById() {
+        return transactionHistoryRepository.findAll().stream()
+                .sorted(Comparator.comparing(TransactionHistory::getId))
+                .toList();
+    }
+
+    private static int keyId(String encrypted) {
+        return Base64.getDecoder().decode(encrypted)[2] & 0xFF;
+    }
+
+    /**
+     * Format v2 của AESUtils với key ID cũ: header(3) + IV(12) + ciphertext + tag, header là AAD
+     */
+    private static String encryptWithOldKey(String plainText) throws Exception {
+        byte[] key = Arrays.copyOf(MessageDigest.getInstance("SHA-256")
+                .digest(OLD_MASTER_KEY.getBytes(StandardCharsets.UTF_8)), 32);
+        byte[] header = {2, 1, (byte) OLD_KEY_ID};
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+        cipher.updateAAD(header);
+        byte[] encrypted = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+
+        byte[] combined = new byte[header.length + iv.length + encrypted.length];
+        System.arraycopy(header, 0, combined, 0, header.length);
+        System.arraycopy(iv, 0, combined, header.length, iv.length);
+        System.arraycopy(encrypted, 0, combined, header.length + iv.length, encrypted.length);
+        return Base64.getEncoder().encodeToString(combined);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.Transaction.job;
+
+import com.example.Transaction.entity.ReconciliationCheckpoint;
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.repository.ReconciliationCheckpointRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.service.IHistoryArchiveService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "archive.enabled=true",
+        "archive.age-days=30",
+        "archive.max-segment-rows=1000",
+        "archive.row-group-size=16",
+        "archive.compression-level=1",
+        "archive.delete-chunk-size=10",
+        "archive.interval-minutes=60"
+})
+@Import({HistoryArchiveJob.class, HistoryArchiveJobTest.Metrics.class})
+// Job tự commit từng chunk xóa
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HistoryArchiveJobTest {
+    private static final long WAIT_MILLIS = 5_000;
+
+    private static Path archiveDir;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @DynamicPropertySource
+    static void archiveDir(DynamicPropertyRegistry registry) throws IOException {
+        archiveDir = Files.createTempDirectory("history-archive");
+        registry.add("archive.dir", archiveDir::toString);
+    }
+
+    @MockBean
+    private IHistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private HistoryArchiveJob job;
+
+    @Autowired
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    /**
+     * Đợi lần chạy đầu của thread nền xong để không chạy song song với archive() trong test
+     */
+    @BeforeEach
+    void waitForWorkerIdle() throws InterruptedException {
+        Thread worker = (Thread) ReflectionTestUtils.getField(job, "worker");
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (worker.getState() != Thread.State.TIMED_WAITING) {
+            assertThat(System.currentTimeMillis()).as("archive worker did not go idle").isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionHistoryRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void archivesNothingWithoutReconciliationCheckpoint() throws IOException {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        transactionHistoryRepository.saveAll(List.of(
+                leg("TX-1", now.minusDays(90)),
+                leg("TX-2", now.minusDays(60))));
+
+        assertThat(job.archive()).isZero();
+
+        assertThat(transactionHistoryRepository.count()).isEqualTo(2);
+        assertThat(segmentFiles()).isEmpty();
+    }
+
+    @Test
+    void doesNotArchivePastReconciliationCheckpoint() throws IOException {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        transactionHistoryRepository.saveAll(List.of(
+                leg("TX-RECONCILED", now.minusDays(90)),
+                // Quá age-days nhưng chưa được đối soát
+                leg("TX-UNRECONCILED", now.minusDays(40)),
+                leg("TX-RECENT", now.minusDays(1))));
+        checkpointRepository.save(ReconciliationCheckpoint.builder()
+                .name(LedgerReconciliationJob.CHECKPOINT_NAME)
+                .reconciledUntil(now.minusDays(50))
+                .updatedAt(now)
+                .build());
+
+        assertThat(job.archive()).isEqualTo(1);
+
+        assertThat(transactionHistoryRepository.findAll())
+                .extracting(TransactionHistory::getTransactionId)
+                .containsExactlyInAnyOrder("TX-UNRECONCILED", "TX-RECENT");
+        assertThat(segmentFiles()).hasSize(1);
+    }
+
+    private static List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            return files.toList();
+        }
+    }
+
+    private static TransactionHistory leg(String transactionId, LocalDateTime time) {
+        return TransactionHistory.builder()
+                .transactionId(transactionId)
+                .account("AQEA")
+                .accountIndex("idx-" + transactionId)
+                .inDebt(BigDecimal.ONE)
+                .have(BigDecimal.ZERO)
+                .time(time)
+                .build();
+    }
+}
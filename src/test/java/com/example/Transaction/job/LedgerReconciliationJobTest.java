@@ -0,0 +1,130 @@
+package com.example.Transaction.job;
+
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.repository.LedgerDiscrepancyRepository;
+import com.example.Transaction.repository.ReconciliationCheckpointRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "reconciliation.enabled=false",
+        "reconciliation.window-minutes=60",
+        "reconciliation.settle-minutes=10",
+        "reconciliation.parallelism=4",
+        "reconciliation.max-discrepancies-per-window=100"
+})
+@Import({LedgerReconciliationJob.class, LedgerReconciliationJobTest.Metrics.class})
+// Mỗi cửa sổ và checkpoint tự commit như khi chạy thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// Counter của job giữ giá trị giữa các test
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LedgerReconciliationJobTest {
+    // Vượt long khi đổi sang cent: cửa sổ chứa leg này bị coi là lỗi
+    private static final BigDecimal OVERFLOW = new BigDecimal("99999999999999999.99");
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private LedgerReconciliationJob job;
+
+    @Autowired
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @Autowired
+    private LedgerDiscrepancyRepository discrepancyRepository;
+
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanUp() {
+        transactionHistoryRepository.deleteAll();
+        discrepancyRepository.deleteAll();
+        checkpointRepository.deleteAll();
+    }
+
+    @Test
+    void windowsAfterFailedWindowAreCountedOnlyOnceCheckpointPassesThem() {
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(5);
+        // Cửa sổ 0 lỗi, cửa sổ 1 có một giao dịch lệch, cửa sổ 2 cân
+        TransactionHistory overflow = leg("TX-1", OVERFLOW, BigDecimal.ZERO, base);
+        transactionHistoryRepository.saveAll(List.of(
+                overflow,
+                leg("TX-1", BigDecimal.ZERO, new BigDecimal("1.00"), base),
+                leg("TX-2", new BigDecimal("10.00"), BigDecimal.ZERO, base.plusMinutes(90)),
+                leg("TX-2", BigDecimal.ZERO, new BigDecimal("9.00"), base.plusMinutes(90)),
+                leg("TX-3", new BigDecimal("5.00"), BigDecimal.ZERO, base.plusMinutes(150)),
+                leg("TX-3", BigDecimal.ZERO, new BigDecimal("5.00"), base.plusMinutes(150))));
+
+        LedgerReconciliationJob.Report failed = job.reconcile();
+
+        assertThat(failed.to()).isEqualTo(base);
+        assertThat(failed.discrepancies()).isZero();
+        assertThat(checkpointRepository.findById(LedgerReconciliationJob.CHECKPOINT_NAME)).isEmpty();
+        assertThat(discrepancies()).isZero();
+        assertThat(rowsScanned()).isZero();
+
+        // Sửa leg lỗi: lần sau quét lại từ cửa sổ 0, cửa sổ 1 chỉ được đếm một lần
+        overflow.setInDebt(new BigDecimal("1.00"));
+        transactionHistoryRepository.save(overflow);
+
+        LedgerReconciliationJob.Report report = job.reconcile();
+
+        assertThat(report.from()).isEqualTo(base);
+        assertThat(report.rows()).isEqualTo(6);
+        assertThat(report.discrepancies()).isEqualTo(1);
+        assertThat(discrepancies()).isEqualTo(1);
+        assertThat(rowsScanned()).isEqualTo(6);
+        assertThat(discrepancyRepository.findAll())
+                .extracting("transactionId")
+                .containsExactly("TX-2");
+    }
+
+    private double discrepancies() {
+        return meterRegistry.get("reconciliation.discrepancies").counter().count();
+    }
+
+    private double rowsScanned() {
+        return meterRegistry.get("reconciliation.rows.scanned").counter().count();
+    }
+
+    private static TransactionHistory leg(String transactionId, BigDecimal inDebt, BigDecimal have,
+                                          LocalDateTime time) {
+        return TransactionHistory.builder()
+                .transactionId(transactionId)
+                .account("AQEA")
+                .accountIndex("idx-" + transactionId)
+                .inDebt(inDebt)
+                .have(have)
+                .time(time)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.Transaction.repository;
+
+import com.example.Transaction.entity.TransactionHistory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class TransactionHistoryRepositoryTest {
+    @Autowired
+    private TransactionHistoryRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void transferLegsAreWrittenInOneBatchedStatement() {
+        // Lần đầu lấy block ID từ sequence
+        repository.saveAll(legs("TX-WARMUP"));
+        entityManager.flush();
+
+        statistics.clear();
+        repository.saveAll(legs("TX-1"));
+        entityManager.flush();
+
+        // Cả hai leg dùng chung một PreparedStatement, không có round trip lấy ID
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(2);
+    }
+
+    @Test
+    void idsAreAllocatedBeforeFlush() {
+        List<TransactionHistory> saved = repository.saveAll(legs("TX-2"));
+
+        assertThat(saved).allSatisfy(leg -> assertThat(leg.getId()).isNotNull());
+        assertThat(statistics.getEntityInsertCount()).isZero();
+    }
+
+    private static List<TransactionHistory> legs(String transactionId) {
+        BigDecimal amount = new BigDecimal("100.00");
+        LocalDateTime time = LocalDateTime.now();
+        return List.of(
+                TransactionHistory.builder()
+                        .transactionId(transactionId).account("c291cmNl")
+                        .inDebt(amount).have(BigDecimal.ZERO).time(time)
+                        .build(),
+                TransactionHistory.builder()
+                        .transactionId(transactionId).account("ZGVzdA==")
+                        .inDebt(BigDecimal.ZERO).have(amount).time(time)
+                        .build()
+        );
+    }
+}
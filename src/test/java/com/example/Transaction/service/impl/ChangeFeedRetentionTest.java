@@ -0,0 +1,82 @@
+package com.example.Transaction.service.impl;
+
+import com.example.Transaction.entity.TransferOutbox;
+import com.example.Transaction.mapper.TransactionMapper;
+import com.example.Transaction.repository.TransferOutboxRepository;
+import com.example.Transaction.util.AESUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "outbox.enabled=true",
+        // Instance này không chạy relay, retention vẫn phải chạy
+        "outbox.relay.enabled=false",
+        "outbox.retention-hours=1",
+        "outbox.cleanup-interval-millis=20"
+})
+@Import({ChangeFeedService.class, TransactionMapper.class, ObjectMapper.class})
+// Thread retention tự commit
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ChangeFeedRetentionTest {
+    private static final long WAIT_MILLIS = 5_000;
+
+    @MockBean
+    private AESUtils aesUtils;
+
+    @Autowired
+    private TransferOutboxRepository outboxRepository;
+
+    @AfterEach
+    void cleanUp() {
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void deletesExpiredPublishedRowsWithoutRelay() throws Exception {
+        LocalDateTime old = LocalDateTime.now().minusHours(2);
+        outboxRepository.saveAll(List.of(
+                row("TX-OLD-PUBLISHED", 1L, old),
+                row("TX-NEW-PUBLISHED", 2L, LocalDateTime.now()),
+                // Chưa publish thì giữ lại cho relay, dù đã quá retention
+                row("TX-OLD-UNPUBLISHED", null, old)));
+
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (outboxRepository.count() > 2) {
+            assertThat(System.currentTimeMillis()).as("retention did not run in time").isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+
+        assertThat(outboxRepository.findAll())
+                .extracting(TransferOutbox::getTransactionId)
+                .containsExactlyInAnyOrder("TX-NEW-PUBLISHED", "TX-OLD-UNPUBLISHED");
+    }
+
+    private static TransferOutbox row(String transactionId, Long sequence, LocalDateTime createdAt) {
+        return TransferOutbox.builder()
+                .transactionId(transactionId)
+                .sequence(sequence)
+                .sourceAccount("AgEBAAAA")
+                .destAccount("AgEBAAAB")
+                .amount(BigDecimal.TEN)
+                .time(createdAt)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.Transaction.service.impl;
+
+import com.example.Transaction.entity.TransferOutbox;
+import com.example.Transaction.mapper.TransactionMapper;
+import com.example.Transaction.repository.TransferOutboxRepository;
+import com.example.Transaction.service.IChangeFeedService.Format;
+import com.example.Transaction.util.AESUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "outbox.enabled=true",
+        "outbox.relay.enabled=true",
+        "outbox.relay.batch-size=3",
+        "outbox.relay.poll-interval-millis=20",
+        // Buffer nhỏ: resume từ sequence cũ phải đọc DB rồi chuyển sang buffer
+        "feed.buffer-size=4",
+        "feed.batch-size=3",
+        "feed.heartbeat-millis=60000",
+        "feed.max-stream-millis=500"
+})
+@Import({ChangeFeedService.class, TransactionMapper.class, ChangeFeedServiceTest.Json.class})
+// Relay tự commit từng batch trên thread riêng
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// Buffer của relay giữ trạng thái giữa các test
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ChangeFeedServiceTest {
+    private static final long WAIT_MILLIS = 5_000;
+
+    @TestConfiguration
+    static class Json {
+        @Bean
+        ObjectMapper objectMapper() {
+            return JsonMapper.builder().findAndAddModules().build();
+        }
+    }
+
+    @MockBean
+    private AESUtils aesUtils;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private TransferOutboxRepository outboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanUp() {
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void resumesFromCursorWithoutSkippingOrDuplicating() throws Exception {
+        commit(10);
+        awaitPublished(10);
+
+        assertThat(tail(0)).containsExactlyElementsOf(range(1, 10));
+        // Trước buffer (chỉ giữ 7..10): đọc DB rồi nối sang buffer
+        assertThat(tail(4)).containsExactlyElementsOf(range(5, 10));
+        // Trong buffer
+        assertThat(tail(8)).containsExactlyElementsOf(range(9, 10));
+        assertThat(tail(10)).isEmpty();
+    }
+
+    @Test
+    void resumedConsumerReceivesEventsCommittedWhileTailing() throws Exception {
+        commit(5);
+        awaitPublished(5);
+
+        CompletableFuture<List<Long>> tailing = CompletableFuture.supplyAsync(() -> {
+            try {
+                return tail(3);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(100);
+        commit(4);
+
+        assertThat(tailing.get(WAIT_MILLIS, TimeUnit.MILLISECONDS)).containsExactlyElementsOf(range(4, 9));
+    }
+
+    /**
+     * Đọc feed NDJSON tới khi hết feed.max-stream-millis, trả về các sequence đã nhận theo thứ tự
+     */
+    private List<Long> tail(long afterSequence) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        changeFeedService.tail(afterSequence, Format.NDJSON, out);
+        List<Long> sequences = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                sequences.add(objectMapper.readTree(line).get("sequence").asLong());
+            }
+        }
+        return sequences;
+    }
+
+    private void commit(int count) {
+        List<TransferOutbox> rows = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            rows.add(TransferOutbox.builder()
+                    .transactionId("TX-" + System.nanoTime() + "-" + i)
+                    .sourceAccount("AgEBAAAA")
+                    .destAccount("AgEBAAAB")
+                    .amount(BigDecimal.TEN)
+                    .time(now)
+                    .createdAt(now)
+                    .build());
+        }
+        outboxRepository.saveAll(rows);
+        changeFeedService.notifyCommitted();
+    }
+
+    private void awaitPublished(long sequence) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!Long.valueOf(sequence).equals(outboxRepository.findMaxSequence())) {
+            assertThat(System.currentTimeMillis()).as("relay did not publish in time").isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private static List<Long> range(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().toList();
+    }
+}
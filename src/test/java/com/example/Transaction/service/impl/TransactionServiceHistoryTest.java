@@ -0,0 +1,164 @@
+package com.example.Transaction.service.impl;
+
+import com.example.Transaction.config.ExecutorConfig;
+import com.example.Transaction.config.I18nConfig;
+import com.example.Transaction.config.Translator;
+import com.example.Transaction.dto.request.TransactionHistoryRequest;
+import com.example.Transaction.dto.response.TransactionHistoryPageResponse;
+import com.example.Transaction.dto.response.TransactionHistoryResponse;
+import com.example.Transaction.entity.TransactionHistory;
+import com.example.Transaction.mapper.TransactionMapper;
+import com.example.Transaction.metrics.TransferMetrics;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.service.IAccountBalanceService;
+import com.example.Transaction.service.IChangeFeedService;
+import com.example.Transaction.service.IHistoryArchiveService;
+import com.example.Transaction.util.AESUtils;
+import com.example.Transaction.util.BlindIndexUtils;
+import com.example.Transaction.util.CryptoPool;
+import com.example.Transaction.util.EnvelopeUtils;
+import com.example.Transaction.util.RSAUtils;
+import com.example.Transaction.util.SensitiveDataMasker;
+import com.example.Transaction.util.TransactionIdFilter;
+import com.example.Transaction.util.TransferLookupCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "encryption.aes.master.key=test-master-key",
+        "encryption.blind-index.key=test-blind-index-key"
+})
+@Import({TransactionService.class, TransactionIdFilter.class, TransferLookupCache.class, TransactionMapper.class,
+        AESUtils.class, BlindIndexUtils.class, CryptoPool.class, SensitiveDataMasker.class, TransferMetrics.class,
+        ExecutorConfig.class, I18nConfig.class, Translator.class, TransactionServiceHistoryTest.Beans.class})
+class TransactionServiceHistoryTest {
+    private static final String ACCOUNT = "0123456789";
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 1, 1, 10, 0, 0, 123_456_000);
+
+    @TestConfiguration
+    static class Beans {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+
+    @MockBean
+    private RSAUtils rsaUtils;
+
+    @MockBean
+    private EnvelopeUtils envelopeUtils;
+
+    @MockBean
+    private IAccountBalanceService accountBalanceService;
+
+    @MockBean
+    private IChangeFeedService changeFeedService;
+
+    @MockBean
+    private IHistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @Autowired
+    private AESUtils aesUtils;
+
+    @Autowired
+    private BlindIndexUtils blindIndexUtils;
+
+    @BeforeEach
+    void plainTextRsa() {
+        when(rsaUtils.decrypt(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void cursorPagesThroughRowsWithSameTimeWithoutSkipOrRepeat() {
+        List<String> expected = new ArrayList<>();
+        List<TransactionHistory> rows = new ArrayList<>();
+        // Thứ tự (time, id): id tăng theo thứ tự saveAll
+        for (int i = 0; i < 2; i++) {
+            rows.add(leg("TX-EARLY-" + i, ACCOUNT, TIME.minusSeconds(1)));
+            expected.add("TX-EARLY-" + i);
+        }
+        for (int i = 0; i < 7; i++) {
+            rows.add(leg("TX-SAME-" + i, ACCOUNT, TIME));
+            expected.add("TX-SAME-" + i);
+            // Account khác cùng time không được lẫn vào trang
+            rows.add(leg("TX-OTHER-" + i, "9876543210", TIME));
+        }
+        for (int i = 0; i < 3; i++) {
+            rows.add(leg("TX-LATE-" + i, ACCOUNT, TIME.plusNanos(1_000)));
+            expected.add("TX-LATE-" + i);
+        }
+        transactionHistoryRepository.saveAll(rows);
+
+        for (int size : new int[]{1, 3, 5, 12, 20}) {
+            assertThat(readAllPages(size)).as("page size %d", size).containsExactlyElementsOf(expected);
+        }
+    }
+
+    /**
+     * Đọc hết các trang theo nextCursor, trả về transactionId theo thứ tự nhận được
+     */
+    private List<String> readAllPages(int size) {
+        List<String> received = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            TransactionHistoryPageResponse page = transactionService.getHistory(TransactionHistoryRequest.builder()
+                    .account(ACCOUNT)
+                    .from(TIME.minusHours(1))
+                    .to(TIME.plusHours(1))
+                    .cursor(cursor)
+                    .size(size)
+                    .build());
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(size);
+            for (TransactionHistoryResponse item : page.getItems()) {
+                assertThat(item.getAccount()).isEqualTo(ACCOUNT);
+                received.add(item.getTransactionId());
+            }
+            cursor = page.getNextCursor();
+            assertThat(++pages).as("cursor did not advance").isLessThanOrEqualTo(12);
+        } while (cursor != null);
+        return received;
+    }
+
+    private TransactionHistory leg(String transactionId, String account, LocalDateTime time) {
+        return TransactionHistory.builder()
+                .transactionId(transactionId)
+                .account(aesUtils.encryptForDB(account))
+                .accountIndex(blindIndexUtils.index(account))
+                .inDebt(BigDecimal.ONE)
+                .have(BigDecimal.ZERO)
+                .time(time)
+                .build();
+    }
+}
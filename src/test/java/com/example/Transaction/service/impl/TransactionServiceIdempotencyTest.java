@@ -0,0 +1,215 @@
+package com.example.Transaction.service.impl;
+
+import com.example.Transaction.config.ExecutorConfig;
+import com.example.Transaction.config.I18nConfig;
+import com.example.Transaction.config.Translator;
+import com.example.Transaction.dto.request.TransactionRequest;
+import com.example.Transaction.dto.response.TransactionResponse;
+import com.example.Transaction.dto.response.TransferResultResponse;
+import com.example.Transaction.mapper.TransactionMapper;
+import com.example.Transaction.metrics.TransferMetrics;
+import com.example.Transaction.repository.AccountBalanceRepository;
+import com.example.Transaction.repository.TransactionHistoryRepository;
+import com.example.Transaction.repository.TransferIdempotencyKeyRepository;
+import com.example.Transaction.repository.TransferOutboxRepository;
+import com.example.Transaction.service.IChangeFeedService;
+import com.example.Transaction.service.IHistoryArchiveService;
+import com.example.Transaction.util.AESUtils;
+import com.example.Transaction.util.BlindIndexUtils;
+import com.example.Transaction.util.CryptoPool;
+import com.example.Transaction.util.EnvelopeUtils;
+import com.example.Transaction.util.RSAUtils;
+import com.example.Transaction.util.SensitiveDataMasker;
+import com.example.Transaction.util.TransactionIdFilter;
+import com.example.Transaction.util.TransferLookupCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        // Số dư ghi bằng INSERT ... ON DUPLICATE KEY UPDATE, cần chế độ MySQL của H2
+        "spring.datasource.url=jdbc:h2:mem:idempotency;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "encryption.aes.master.key=test-master-key",
+        "encryption.blind-index.key=test-blind-index-key",
+        "outbox.enabled=true",
+        // Filter nhỏ để test được việc xoay thế hệ
+        "idempotency.filter.expected-insertions=4",
+        "idempotency.filter.false-positive-rate=0.01"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TransactionService.class, AccountBalanceService.class, TransactionIdFilter.class, TransferLookupCache.class,
+        TransactionMapper.class, AESUtils.class, BlindIndexUtils.class, CryptoPool.class, SensitiveDataMasker.class,
+        TransferMetrics.class, ExecutorConfig.class, I18nConfig.class, Translator.class,
+        TransactionServiceIdempotencyTest.Beans.class})
+// Service tự mở transaction khi ghi, như khi chạy thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// Filter và lookup cache giữ trạng thái giữa các test
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TransactionServiceIdempotencyTest {
+    private static final String TIME = "2024-01-01T10:00:00";
+
+    @TestConfiguration
+    static class Beans {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+
+    @MockBean
+    private RSAUtils rsaUtils;
+
+    @MockBean
+    private EnvelopeUtils envelopeUtils;
+
+    @MockBean
+    private IChangeFeedService changeFeedService;
+
+    @MockBean
+    private IHistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionIdFilter transactionIdFilter;
+
+    @Autowired
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @Autowired
+    private TransferIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private TransferOutboxRepository outboxRepository;
+
+    @Autowired
+    private AccountBalanceRepository accountBalanceRepository;
+
+    @Autowired
+    private BlindIndexUtils blindIndexUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void plainTextRsa() {
+        // Request trong test gửi plain text, RSA decrypt trả nguyên giá trị
+        when(rsaUtils.decrypt(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionHistoryRepository.deleteAll();
+        idempotencyKeyRepository.deleteAll();
+        outboxRepository.deleteAll();
+        accountBalanceRepository.deleteAll();
+    }
+
+    @Test
+    void replayReturnsStoredResultWithoutWritingAgain() {
+        TransactionResponse first = transactionService.processTransfer(request("TX-1", "10.00"));
+
+        // Cùng transactionId, nội dung khác: vẫn trả kết quả đã lưu
+        TransactionResponse replay = transactionService.processTransfer(request("TX-1", "99.00"));
+
+        assertThat(replay.getTransactionId()).isEqualTo("TX-1");
+        assertThat(replay.getSourceAccount()).isEqualTo(first.getSourceAccount());
+        assertThat(replay.getDestAccount()).isEqualTo(first.getDestAccount());
+        assertThat(replay.getAmount()).isEqualByComparingTo("10.00");
+        assertWrittenOnce("TX-1");
+        assertThat(duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateInsideBatchIsWrittenOnce() {
+        List<TransferResultResponse> results = transactionService.processTransfers(
+                List.of(request("TX-2", "5.00"), request("TX-2", "5.00"), request("TX-3", "1.00")));
+
+        assertThat(results).allSatisfy(result -> assertThat(result.isSuccess()).isTrue());
+        assertWrittenOnce("TX-2");
+        assertWrittenOnce("TX-3");
+    }
+
+    @Test
+    void filterFalsePositiveFallsThroughToDatabaseCheck() {
+        // Filter báo "có thể đã ghi" cho một transactionId chưa có trong DB
+        transactionIdFilter.put("TX-4");
+        assertThat(transactionIdFilter.mightContain("TX-4")).isTrue();
+
+        TransactionResponse response = transactionService.processTransfer(request("TX-4", "3.00"));
+
+        assertThat(response.getAmount()).isEqualByComparingTo("3.00");
+        assertWrittenOnce("TX-4");
+        assertThat(duplicates()).isZero();
+    }
+
+    @Test
+    void replayAfterFilterRotationIsStoppedByUniqueConstraint() {
+        transactionService.processTransfer(request("TX-5", "7.00"));
+        // Hai lần xoay thế hệ (4 ID mỗi thế hệ): TX-5 rơi khỏi filter
+        for (int i = 0; i < 8; i++) {
+            transactionIdFilter.put("OTHER-" + i);
+        }
+        assertThat(transactionIdFilter.mightContain("TX-5")).isFalse();
+
+        TransactionResponse replay = transactionService.processTransfer(request("TX-5", "70.00"));
+
+        assertThat(replay.getAmount()).isEqualByComparingTo("7.00");
+        assertWrittenOnce("TX-5");
+        // Đã có lại trong filter sau khi tra DB
+        assertThat(transactionIdFilter.mightContain("TX-5")).isTrue();
+    }
+
+    private void assertWrittenOnce(String transactionId) {
+        assertThat(transactionHistoryRepository.findByTransactionId(transactionId)).hasSize(2);
+        assertThat(idempotencyKeyRepository.existsById(transactionId)).isTrue();
+        assertThat(outboxRepository.findAll())
+                .filteredOn(outbox -> outbox.getTransactionId().equals(transactionId))
+                .hasSize(1);
+        assertThat(accountBalanceRepository.findById(blindIndexUtils.index("source-" + transactionId)).orElseThrow()
+                .getTotalInDebt()).isPositive();
+    }
+
+    private double duplicates() {
+        return meterRegistry.get("transfer.duplicates").counter().count();
+    }
+
+    private static TransactionRequest request(String transactionId, String amount) {
+        return TransactionRequest.builder()
+                .transactionId(transactionId)
+                .sourceAccount("source-" + transactionId)
+                .destAccount("dest-" + transactionId)
+                .amount(amount)
+                .time(TIME)
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.config.I18nConfig;
+import com.example.Transaction.config.Translator;
+import com.example.Transaction.exception.AESProcessingException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Cấu hình mặc định từ application.yaml, chỉ thay master key
+@SpringJUnitConfig(classes = {I18nConfig.class, Translator.class, CryptoPool.class, AESUtils.class,
+        AESUtilsTest.Metrics.class}, initializers = ConfigDataApplicationContextInitializer.class)
+@TestPropertySource(properties = "encryption.aes.master.key=test-master-key")
+class AESUtilsTest {
+    private static final String MASTER_KEY = "test-master-key";
+    private static final int HEADER_AND_IV = 15;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private AESUtils aesUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void roundTripsGcmFormat() {
+        String encrypted = aesUtils.encryptForDB("0123456789");
+
+        assertThat(Base64.getDecoder().decode(encrypted)[0]).isEqualTo((byte) 2);
+        assertThat(aesUtils.decryptFromDB(encrypted)).isEqualTo("0123456789");
+    }
+
+    @Test
+    void readsBaselineCbcValueWithDefaultConfig() throws Exception {
+        // Giá trị do code trước v2 ghi: IV ngẫu nhiên + AES/CBC bằng SHA-256(master key)
+        byte[] iv = new byte[16];
+        new SecureRandom().nextBytes(iv);
+        // Tránh trường hợp IV trùng header v2 (xác suất 2^-24), đã có test riêng
+        iv[0] = 0;
+
+        assertThat(aesUtils.decryptFromDB(encryptLegacy("0123456789", iv))).isEqualTo("0123456789");
+    }
+
+    @Test
+    void readsLegacyCbcValuesAndCountsEachRead() throws Exception {
+        String legacy = encryptLegacy("9876543210");
+        double before = legacyReads();
+
+        assertThat(aesUtils.decryptFromDB(legacy)).isEqualTo("9876543210");
+        assertThat(aesUtils.decryptAll(List.of(aesUtils.encryptForDB("a"), legacy, aesUtils.encryptForDB("b"))))
+                .containsExactly("a", "9876543210", "b");
+        assertThat(legacyReads() - before).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotFallBackToCbcWhenGcmAuthenticationFails() throws Exception {
+        // 17 byte plain text: 3 + 12 + 17 + 16 = 48 byte, có dạng của giá trị CBC
+        byte[] combined = Base64.getDecoder().decode(aesUtils.encryptForDB("01234567890123456"));
+        assertThat(combined.length % 16).isZero();
+        combined[HEADER_AND_IV] ^= 1;
+        double before = legacyReads();
+
+        assertThatThrownBy(() -> aesUtils.decryptFromDB(Base64.getEncoder().encodeToString(combined)))
+                .isInstanceOf(AESProcessingException.class);
+        // Giá trị CBC có IV trùng header v2 cũng chỉ được thử bằng GCM
+        assertThatThrownBy(() -> aesUtils.decryptFromDB(encryptLegacy("9876543210", new byte[]{2, 1, 1})))
+                .isInstanceOf(AESProcessingException.class);
+        assertThat(legacyReads()).isEqualTo(before);
+    }
+
+    @Test
+    void rejectsTamperedValues() {
+        byte[] combined = Base64.getDecoder().decode(aesUtils.encryptForDB("0123456789"));
+        combined[combined.length - 1] ^= 1;
+
+        assertThatThrownBy(() -> aesUtils.decryptFromDB(Base64.getEncoder().encodeToString(combined)))
+                .isInstanceOf(AESProcessingException.class);
+    }
+
+    @Test
+    void reencryptsOnlyValuesNotUnderCurrentKey() throws Exception {
+        String current = aesUtils.encryptForDB("0123456789");
+        String legacy = encryptLegacy("9876543210");
+
+        List<String> reencrypted = aesUtils.reencryptAll(Arrays.asList(current, legacy, null));
+
+        assertThat(reencrypted.get(0)).isNull();
+        assertThat(reencrypted.get(2)).isNull();
+        assertThat(Base64.getDecoder().decode(reencrypted.get(1))[0]).isEqualTo((byte) 2);
+        assertThat(aesUtils.decryptFromDB(reencrypted.get(1))).isEqualTo("9876543210");
+        assertThat(aesUtils.reencryptAll(List.of(reencrypted.get(1)))).containsExactly((String) null);
+    }
+
+    private double legacyReads() {
+        return meterRegistry.get("aes.legacy.reads").counter().count();
+    }
+
+    private static String encryptLegacy(String plainText) throws Exception {
+        return encryptLegacy(plainText, new byte[]{0});
+    }
+
+    /**
+     * Format trước v2: IV(16) + AES/CBC/PKCS5Padding, IV bắt đầu bằng ivPrefix
+     */
+    private static String encryptLegacy(String plainText, byte[] ivPrefix) throws Exception {
+        byte[] key = Arrays.copyOf(MessageDigest.getInstance("SHA-256")
+                .digest(MASTER_KEY.getBytes(StandardCharsets.UTF_8)), 32);
+        byte[] iv = new byte[16];
+        System.arraycopy(ivPrefix, 0, iv, 0, ivPrefix.length);
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        byte[] encrypted = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+
+        byte[] combined = new byte[iv.length + encrypted.length];
+        System.arraycopy(iv, 0, combined, 0, iv.length);
+        System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
+        return Base64.getEncoder().encodeToString(combined);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.entity.TransactionHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArchiveSegmentTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0, 0, 123_000_000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsRowsAcrossRowGroups() throws IOException {
+        Path file = write(dir.resolve("history.seg"), 25);
+        ArchiveSegment segment = ArchiveSegment.open(file);
+
+        assertThat(segment.getRowCount()).isEqualTo(50);
+        assertThat(segment.getMinTime()).isEqualTo(START);
+        assertThat(segment.getMaxTime()).isEqualTo(START.plusMinutes(24));
+        assertThat(segment.ids()).hasSize(50).startsWith(1L, 2L).endsWith(49L, 50L);
+
+        List<TransactionHistory> legs = segment.findByTransactionId("TX-7");
+        assertThat(legs).hasSize(2);
+        assertThat(legs.get(0).getAccount()).isEqualTo("c291cmNl");
+        assertThat(legs.get(0).getInDebt()).isEqualByComparingTo("7.25");
+        assertThat(legs.get(1).getHave()).isEqualByComparingTo("7.25");
+        assertThat(legs.get(0).getTime()).isEqualTo(START.plusMinutes(7));
+        assertThat(segment.findByTransactionId("TX-missing")).isEmpty();
+    }
+
+    @Test
+    void findsAccountRowsByIndexAndTimeRange() throws IOException {
+        ArchiveSegment segment = ArchiveSegment.open(write(dir.resolve("history.seg"), 25));
+
+        List<TransactionHistory> rows = segment.findByAccountIndex("source-index", START.plusMinutes(5), START.plusMinutes(10));
+        assertThat(rows).extracting(TransactionHistory::getTransactionId)
+                .containsExactly("TX-5", "TX-6", "TX-7", "TX-8", "TX-9");
+
+        long[] totals = new long[2];
+        segment.addTotals("dest-index", totals);
+        assertThat(totals[0]).isZero();
+        assertThat(ArchiveSegment.toAmount(totals[1])).isEqualByComparingTo("306.25");
+
+        Set<String> accountIndexes = new HashSet<>();
+        segment.forEachAccountIndex(accountIndexes::add);
+        assertThat(accountIndexes).containsExactlyInAnyOrder("source-index", "dest-index");
+    }
+
+    @Test
+    void rejectsIncompleteSegments() throws IOException {
+        Path file = write(dir.resolve("history.seg"), 5);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        assertThatThrownBy(() -> ArchiveSegment.open(file)).isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * transfers giao dịch, mỗi giao dịch 2 leg cùng time, row group 4 dòng
+     */
+    private static Path write(Path file, int transfers) throws IOException {
+        List<TransactionHistory> rows = new ArrayList<>();
+        long id = 1;
+        for (int i = 0; i < transfers; i++) {
+            BigDecimal amount = new BigDecimal(i + ".25");
+            LocalDateTime time = START.plusMinutes(i);
+            rows.add(leg(id++, "TX-" + i, "c291cmNl", "source-index", amount, BigDecimal.ZERO, time));
+            rows.add(leg(id++, "TX-" + i, "ZGVzdA==", "dest-index", BigDecimal.ZERO, amount, time));
+        }
+        try (ArchiveSegment.Writer writer = new ArchiveSegment.Writer(file, 4, Deflater.DEFAULT_COMPRESSION)) {
+            for (TransactionHistory row : rows) {
+                writer.append(row);
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    private static TransactionHistory leg(long id, String transactionId, String account, String accountIndex,
+                                          BigDecimal inDebt, BigDecimal have, LocalDateTime time) {
+        return TransactionHistory.builder()
+                .id(id)
+                .transactionId(transactionId)
+                .account(account)
+                .accountIndex(accountIndex)
+                .inDebt(inDebt)
+                .have(have)
+                .time(time)
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.Transaction.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LedgerTallyTest {
+
+    @Test
+    void reportsOnlyUnbalancedTransactions() {
+        LedgerTally tally = new LedgerTally(4);
+        tally.add("TX-OK", 1000, 0);
+        tally.add("TX-OK", 0, 1000);
+        tally.add("TX-ONE-LEG", 500, 0);
+        tally.add("TX-MISMATCH", 700, 0);
+        tally.add("TX-MISMATCH", 0, 600);
+
+        List<String> unbalanced = new ArrayList<>();
+        tally.forEachUnbalanced((transactionId, legs, debitCents, creditCents) ->
+                unbalanced.add(transactionId + ":" + legs + ":" + debitCents + ":" + creditCents));
+
+        assertThat(tally.size()).isEqualTo(3);
+        assertThat(unbalanced).containsExactlyInAnyOrder("TX-ONE-LEG:1:500:0", "TX-MISMATCH:2:700:600");
+    }
+
+    @Test
+    void growsAndIsReusableAfterClear() {
+        LedgerTally tally = new LedgerTally(1);
+        for (int i = 0; i < 10_000; i++) {
+            tally.add("TX-" + i, 100, 0);
+            tally.add("TX-" + i, 0, 100);
+        }
+        List<String> unbalanced = new ArrayList<>();
+        tally.forEachUnbalanced((transactionId, legs, debitCents, creditCents) -> unbalanced.add(transactionId));
+        assertThat(tally.size()).isEqualTo(10_000);
+        assertThat(unbalanced).isEmpty();
+
+        tally.clear();
+        tally.add("TX-1", 100, 0);
+        tally.forEachUnbalanced((transactionId, legs, debitCents, creditCents) -> unbalanced.add(transactionId));
+        assertThat(tally.size()).isEqualTo(1);
+        assertThat(unbalanced).containsExactly("TX-1");
+    }
+}
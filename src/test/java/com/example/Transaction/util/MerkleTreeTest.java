@@ -0,0 +1,61 @@
+package com.example.Transaction.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MerkleTreeTest {
+    private static final byte[] NONCE = new byte[16];
+
+    @Test
+    void everyLeafProvesInclusionForAllTreeSizes() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (int size = 1; size <= 33; size++) {
+            MerkleTree tree = new MerkleTree(digest, leaves(digest, size));
+            for (int i = 0; i < size; i++) {
+                byte[] root = MerkleTree.rootFromProof(digest, leaf(digest, i), i, size, tree.proof(i));
+                assertThat(root).as("size %d leaf %d", size, i).isEqualTo(tree.root());
+            }
+        }
+    }
+
+    @Test
+    void rejectsTamperedLeafIndexOrProof() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        MerkleTree tree = new MerkleTree(digest, leaves(digest, 10));
+        List<byte[]> proof = tree.proof(3);
+
+        assertThat(MerkleTree.rootFromProof(digest, leaf(digest, 4), 3, 10, proof)).isNotEqualTo(tree.root());
+        assertThat(MerkleTree.rootFromProof(digest, leaf(digest, 3), 2, 10, proof)).isNotEqualTo(tree.root());
+        assertThat(MerkleTree.rootFromProof(digest, leaf(digest, 3), 3, 10, proof.subList(1, proof.size()))).isNull();
+        assertThat(MerkleTree.rootFromProof(digest, leaf(digest, 3), 10, 10, proof)).isNull();
+    }
+
+    @Test
+    void rootDependsOnLeafCount() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        List<byte[]> three = leaves(digest, 3);
+        List<byte[]> four = new ArrayList<>(three);
+        four.add(three.get(2));
+
+        assertThat(new MerkleTree(digest, three).root()).isNotEqualTo(new MerkleTree(digest, four).root());
+    }
+
+    private static List<byte[]> leaves(MessageDigest digest, int size) {
+        List<byte[]> leaves = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            leaves.add(leaf(digest, i));
+        }
+        return leaves;
+    }
+
+    private static byte[] leaf(MessageDigest digest, int i) {
+        return MerkleTree.leafHash(digest, NONCE, ("TX-" + i).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.Transaction.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SegmentJournalTest {
+    private static final long SEGMENT_SIZE = 1024 * 1024;
+    private static final long DRAIN_INTERVAL_MILLIS = 10;
+    private static final long WAIT_MILLIS = 5_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysSegmentsLeftOnDiskAfterRestart() throws Exception {
+        writeSegment(List.of("TX-1", "TX-2", "TX-3"));
+
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        try (SegmentJournal journal = new SegmentJournal(dir, SEGMENT_SIZE, DRAIN_INTERVAL_MILLIS, 10,
+                records -> records.forEach(r -> applied.add(text(r))))) {
+            awaitTrue(() -> applied.size() == 3 && segmentFiles().size() == 1);
+        }
+
+        assertThat(applied).containsExactly("TX-1", "TX-2", "TX-3");
+    }
+
+    @Test
+    void skipsTornRecordAtEndOfSegment() throws Exception {
+        writeSegment(List.of("TX-1", "TX-2"));
+        // Crash giữa lúc ghi: frame cuối có CRC32C không khớp payload
+        byte[] payload = "TX-3".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer torn = ByteBuffer.allocate(8 + payload.length).putInt(payload.length).putInt(0).put(payload);
+        Files.write(segmentFiles().get(0), torn.array(), StandardOpenOption.APPEND);
+
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        try (SegmentJournal journal = new SegmentJournal(dir, SEGMENT_SIZE, DRAIN_INTERVAL_MILLIS, 10,
+                records -> records.forEach(r -> applied.add(text(r))))) {
+            awaitTrue(() -> segmentFiles().size() == 1);
+        }
+
+        assertThat(applied).containsExactly("TX-1", "TX-2");
+    }
+
+    @Test
+    void redrainsSegmentFromStartAfterApplierFailure() throws Exception {
+        writeSegment(List.of("TX-1", "TX-2", "TX-3", "TX-4"));
+
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger calls = new AtomicInteger();
+        // Batch 2 record: lần gọi thứ hai lỗi, segment được drain lại từ đầu
+        try (SegmentJournal journal = new SegmentJournal(dir, SEGMENT_SIZE, DRAIN_INTERVAL_MILLIS, 2, records -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("database unavailable");
+            }
+            records.forEach(r -> delivered.add(text(r)));
+        })) {
+            awaitTrue(() -> segmentFiles().size() == 1 && delivered.size() == 6);
+        }
+
+        assertThat(delivered).containsExactly("TX-1", "TX-2", "TX-1", "TX-2", "TX-3", "TX-4");
+        assertThat(delivered).containsOnly("TX-1", "TX-2", "TX-3", "TX-4");
+    }
+
+    @Test
+    void appendCompletesAfterFsyncAcrossSegmentRolls() throws Exception {
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        // Segment nhỏ: mỗi record một segment
+        try (SegmentJournal journal = new SegmentJournal(dir, 16, DRAIN_INTERVAL_MILLIS, 10,
+                records -> records.forEach(r -> applied.add(text(r))))) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(bytes("TX-" + i)).get();
+            }
+            awaitTrue(() -> applied.size() == 5);
+        }
+
+        assertThat(applied).containsExactly("TX-0", "TX-1", "TX-2", "TX-3", "TX-4");
+    }
+
+    @Test
+    void failedWriteDoesNotHideRecordsAckedAfterIt() throws Exception {
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        // Lần write thứ hai chỉ ghi được nửa frame rồi lỗi (vd. đầy đĩa)
+        AtomicInteger writes = new AtomicInteger();
+        try (SegmentJournal journal = new SegmentJournal(dir, SEGMENT_SIZE, DRAIN_INTERVAL_MILLIS, 10,
+                records -> records.forEach(r -> applied.add(text(r))),
+                path -> new FaultyChannel(open(path), () -> writes.incrementAndGet() == 2, false))) {
+            journal.append(bytes("TX-1")).get();
+            assertThatThrownBy(() -> journal.append(bytes("TX-2")).get())
+                    .hasCauseInstanceOf(IOException.class);
+            journal.append(bytes("TX-3")).get();
+            journal.append(bytes("TX-4")).get();
+
+            awaitTrue(() -> applied.size() == 3 && segmentFiles().size() == 1);
+        }
+
+        assertThat(applied).containsExactly("TX-1", "TX-3", "TX-4");
+    }
+
+    @Test
+    void stopsAcceptingAppendsWhenPartialFrameCannotBeRemoved() throws Exception {
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger writes = new AtomicInteger();
+        try (SegmentJournal journal = new SegmentJournal(dir, SEGMENT_SIZE, DRAIN_INTERVAL_MILLIS, 10,
+                records -> records.forEach(r -> applied.add(text(r))),
+                path -> new FaultyChannel(open(path), () -> writes.incrementAndGet() == 2, true))) {
+            journal.append(bytes("TX-1")).get();
+            assertThatThrownBy(() -> journal.append(bytes("TX-2")).get())
+                    .hasCauseInstanceOf(IOException.class);
+            assertThatThrownBy(() -> journal.append(bytes("TX-3")).get())
+                    .hasCauseInstanceOf(IllegalStateException.class);
+
+            // Segment bị roll vẫn chỉ được đọc tới offset tốt, phần frame dở phía sau bị bỏ
+            awaitTrue(() -> applied.size() == 1 && segmentFiles().size() == 1);
+        }
+
+        assertThat(applied).containsExactly("TX-1");
+    }
+
+    @Test
+    void keepsClosedSegmentWithCorruptFrameInsteadOfSkippingIt() throws Exception {
+        // Segment 0 đã đóng và fsync nhưng có frame hỏng ở giữa, segment 1 ghi sau nó
+        writeSegment(0, List.of("TX-1"));
+        byte[] payload = bytes("TX-2");
+        ByteBuffer corrupt = ByteBuffer.allocate(8 + payload.length).putInt(payload.length).putInt(0).put(payload);
+        Files.write(segmentFiles().get(0), corrupt.array(), StandardOpenOption.APPEND);
+        writeSegment(1, List.of("TX-3"));
+
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        try (SegmentJournal journal = new SegmentJournal(dir, SEGMENT_SIZE, DRAIN_INTERVAL_MILLIS, 10,
+                records -> records.forEach(r -> applied.add(text(r))))) {
+            awaitTrue(() -> applied.size() == 1);
+            Thread.sleep(DRAIN_INTERVAL_MILLIS * 20);
+        }
+
+        // Không apply vượt qua chỗ hỏng, không xóa segment nào
+        assertThat(applied).containsExactly("TX-1");
+        assertThat(segmentFiles()).extracting(path -> path.getFileName().toString())
+                .contains("segment-00000000000000000000.log", "segment-00000000000000000001.log");
+    }
+
+    private void writeSegment(List<String> records) throws Exception {
+        writeSegment(0, records);
+    }
+
+    /**
+     * Segment còn trên đĩa như sau crash trước khi drain: length(4) + CRC32C(4) + payload cho mỗi record
+     */
+    private void writeSegment(long id, List<String> records) throws Exception {
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        for (String record : records) {
+            byte[] payload = bytes(record);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            segment.write(ByteBuffer.allocate(8 + payload.length)
+                    .putInt(payload.length).putInt((int) crc.getValue()).put(payload).array());
+        }
+        Files.write(dir.resolve(String.format("segment-%020d.log", id)), segment.toByteArray());
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Bọc FileChannel thật, khi fail trả true thì write chỉ ghi nửa buffer rồi ném IOException
+     */
+    private static final class FaultyChannel extends FileChannel {
+        private final FileChannel delegate;
+        private final BooleanSupplier fail;
+        private final boolean failTruncate;
+
+        FaultyChannel(FileChannel delegate, BooleanSupplier fail, boolean failTruncate) {
+            this.delegate = delegate;
+            this.fail = fail;
+            this.failTruncate = failTruncate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (fail.getAsBoolean()) {
+                ByteBuffer half = src.duplicate();
+                half.limit(src.position() + src.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            if (failTruncate) {
+                throw new IOException("Input/output error");
+            }
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private List<Path> segmentFiles() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(DRAIN_INTERVAL_MILLIS);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] record) {
+        return new String(record, StandardCharsets.UTF_8);
+    }
+}
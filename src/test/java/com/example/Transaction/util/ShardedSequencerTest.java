@@ -0,0 +1,124 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.util.ShardedSequencer.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedSequencerTest {
+    private static final long WAIT_SECONDS = 5;
+
+    @Test
+    void writesItemsOfOneKeyInSubmissionOrder() throws Exception {
+        Map<String, List<Integer>> written = new ConcurrentHashMap<>();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        try (ShardedSequencer<Item, Integer> sequencer = new ShardedSequencer<>("test-writer-", 4, 16, 1000,
+                batch -> batch.forEach(task -> {
+                    written.computeIfAbsent(task.item().key(), k -> Collections.synchronizedList(new ArrayList<>()))
+                            .add(task.item().seq());
+                    task.future().complete(task.item().seq());
+                }))) {
+            for (int seq = 0; seq < 200; seq++) {
+                String key = "account-" + (seq % 7);
+                futures.add(sequencer.submit(key, new Item(key, seq)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(WAIT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        assertThat(written).hasSize(7);
+        written.forEach((key, seqs) -> assertThat(seqs).as(key).isSorted());
+        assertThat(written.values().stream().mapToInt(List::size).sum()).isEqualTo(200);
+    }
+
+    @Test
+    void batchesItemsQueuedWhileWriterIsBusy() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        try (ShardedSequencer<Item, Integer> sequencer = new ShardedSequencer<>("test-writer-", 1, 4, 100, batch -> {
+            batchSizes.add(batch.size());
+            entered.countDown();
+            await(release);
+            batch.forEach(task -> task.future().complete(task.item().seq()));
+        })) {
+            CompletableFuture<Integer> first = sequencer.submit("k", new Item("k", 0));
+            await(entered);
+            List<CompletableFuture<Integer>> queued = new ArrayList<>();
+            for (int seq = 1; seq <= 6; seq++) {
+                queued.add(sequencer.submit("k", new Item("k", seq)));
+            }
+            release.countDown();
+
+            assertThat(first.get(WAIT_SECONDS, TimeUnit.SECONDS)).isZero();
+            for (CompletableFuture<Integer> future : queued) {
+                future.get(WAIT_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+
+        // Batch đầu chỉ có một phần tử; 6 phần tử chờ được gom tối đa 4 mỗi batch
+        assertThat(batchSizes).containsExactly(1, 4, 2);
+    }
+
+    @Test
+    void rejectsWithoutBlockingWhenShardQueueIsFull() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ShardedSequencer<Item, Integer> sequencer = new ShardedSequencer<>("test-writer-", 1, 16, 2, batch -> {
+            entered.countDown();
+            await(release);
+            batch.forEach(task -> task.future().complete(task.item().seq()));
+        })) {
+            CompletableFuture<Integer> inWriter = sequencer.submit("k", new Item("k", 0));
+            await(entered);
+            CompletableFuture<Integer> queued1 = sequencer.submit("k", new Item("k", 1));
+            CompletableFuture<Integer> queued2 = sequencer.submit("k", new Item("k", 2));
+
+            CompletableFuture<Integer> rejected = sequencer.submit("k", new Item("k", 3));
+            assertThat(rejected).isCompletedExceptionally();
+            assertThatThrownBy(rejected::get).isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(RejectedExecutionException.class);
+
+            release.countDown();
+            assertThat(inWriter.get(WAIT_SECONDS, TimeUnit.SECONDS)).isZero();
+            assertThat(queued1.get(WAIT_SECONDS, TimeUnit.SECONDS)).isEqualTo(1);
+            assertThat(queued2.get(WAIT_SECONDS, TimeUnit.SECONDS)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void failsWholeBatchWhenWriterThrows() throws Exception {
+        try (ShardedSequencer<Item, Integer> sequencer = new ShardedSequencer<>("test-writer-", 1, 16, 10,
+                (List<Task<Item, Integer>> batch) -> {
+                    throw new IllegalStateException("database unavailable");
+                })) {
+            CompletableFuture<Integer> future = sequencer.submit("k", new Item("k", 0));
+
+            assertThatThrownBy(() -> future.get(WAIT_SECONDS, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(WAIT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Item(String key, int seq) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.dto.request.TransactionBatchRequest;
+import com.example.Transaction.dto.request.TransactionRequest;
+import com.example.Transaction.exception.AppException;
+import com.example.Transaction.metrics.TransferMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.ConfigDataApplicationContextInitializer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+// Cấu hình mặc định từ application.yaml, chỉ thu nhỏ giới hạn của request đơn; admission.batch.* giữ mặc định
+@SpringJUnitConfig(classes = {TransferAdmission.class, TransferMetrics.class, TransferAdmissionTest.Metrics.class},
+        initializers = ConfigDataApplicationContextInitializer.class)
+@TestPropertySource(properties = {
+        // Bucket gần như không hồi trong lúc test chạy
+        "admission.rate-limit.permits-per-second=0.01",
+        "admission.rate-limit.burst=4",
+        "admission.max-in-flight=6"
+})
+// Mỗi test bắt đầu với bucket và permit đầy
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class TransferAdmissionTest {
+    private static KeyPair keyPair;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockBean
+    private RSAKeyProvider keyProvider;
+
+    @Autowired
+    private TransferAdmission admission;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    @BeforeEach
+    void stubKey() {
+        when(keyProvider.getPublicKey()).thenReturn(keyPair.getPublic());
+    }
+
+    @Test
+    void rateLimitsSingleTransfersPerClient() {
+        for (int i = 0; i < 4; i++) {
+            admission.admit("client-a", request()).close();
+        }
+
+        assertRejected(() -> admission.admit("client-a", request()), HttpStatus.TOO_MANY_REQUESTS);
+        // Client khác có bucket riêng
+        admission.admit("client-b", request()).close();
+        assertThat(rejections("rate_limited")).isEqualTo(1);
+    }
+
+    @Test
+    void admitsMaxSizeBatchWithDefaultConfig() {
+        admission.admit("client-a", requests(TransactionBatchRequest.MAX_BATCH_SIZE)).close();
+
+        // Batch không tiêu token của request đơn
+        admission.admit("client-a", request()).close();
+        assertThat(meterRegistry.find("transfer.admission.rejected").counters())
+                .allSatisfy(counter -> assertThat(counter.count()).isZero());
+    }
+
+    @Test
+    void chargesBatchPerTransferOnItsOwnBucket() {
+        // Mặc định 5000 giao dịch/s, burst 10000: hai batch lớn nhất liền nhau vừa hết bucket
+        admission.admit("client-a", requests(TransactionBatchRequest.MAX_BATCH_SIZE)).close();
+        admission.admit("client-a", requests(TransactionBatchRequest.MAX_BATCH_SIZE)).close();
+
+        assertRejected(() -> admission.admit("client-a", requests(TransactionBatchRequest.MAX_BATCH_SIZE)),
+                HttpStatus.TOO_MANY_REQUESTS);
+        admission.admit("client-b", requests(TransactionBatchRequest.MAX_BATCH_SIZE)).close();
+        assertThat(rejections("rate_limited")).isEqualTo(1);
+    }
+
+    @Test
+    void holdsOneInFlightPermitPerTransfer() {
+        TransferAdmission.Permit first = admission.admit("client-a", requests(TransactionBatchRequest.MAX_BATCH_SIZE));
+        TransferAdmission.Permit second = admission.admit("client-b", requests(TransactionBatchRequest.MAX_BATCH_SIZE));
+
+        // Mặc định 10000 giao dịch batch đang xử lý
+        assertRejected(() -> admission.admit("client-c", requests(1)), HttpStatus.SERVICE_UNAVAILABLE);
+        // Request đơn có giới hạn riêng
+        TransferAdmission.Permit single = admission.admit("client-c", request());
+        assertThat(rejections("overloaded")).isEqualTo(1);
+
+        first.close();
+        first.close();
+        admission.admit("client-d", requests(TransactionBatchRequest.MAX_BATCH_SIZE)).close();
+        second.close();
+        single.close();
+        for (int i = 0; i < 6; i++) {
+            admission.admit("client-" + i + "-single", request());
+        }
+        assertRejected(() -> admission.admit("client-e", request()), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void failsStartupWhenBatchLimitsCannotHoldMaxBatch() {
+        TransferAdmission tooSmall = new TransferAdmission(keyProvider, new TransferMetrics(meterRegistry));
+        ReflectionTestUtils.setField(tooSmall, "batchBurst", TransactionBatchRequest.MAX_BATCH_SIZE - 1);
+        ReflectionTestUtils.setField(tooSmall, "batchMaxInFlight", TransactionBatchRequest.MAX_BATCH_SIZE);
+
+        assertThatThrownBy(tooSmall::init).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsMalformedCiphertextBeforeTakingPermit() {
+        TransactionRequest malformed = request();
+        malformed.setAmount("not-rsa");
+
+        assertRejected(() -> admission.admit("client-a", malformed), HttpStatus.BAD_REQUEST);
+        for (int i = 0; i < 6; i++) {
+            admission.admit("client-" + i, request());
+        }
+        assertThat(rejections("malformed")).isEqualTo(1);
+    }
+
+    private void assertRejected(Runnable admit, HttpStatus status) {
+        assertThatThrownBy(admit::run)
+                .isInstanceOf(AppException.class)
+                .satisfies(e -> assertThat(((AppException) e).getStatus()).isEqualTo(status));
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("transfer.admission.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static List<TransactionRequest> requests(int count) {
+        return Collections.nCopies(count, request());
+    }
+
+    private static TransactionRequest request() {
+        return TransactionRequest.builder()
+                .transactionId(rsaBlock())
+                .sourceAccount(rsaBlock())
+                .destAccount(rsaBlock())
+                .amount(rsaBlock())
+                .build();
+    }
+
+    /**
+     * Chỉ kiểm tra hình dạng: Base64 dài đúng một block theo modulus 2048 bit
+     */
+    private static String rsaBlock() {
+        byte[] block = new byte[256];
+        new SecureRandom().nextBytes(block);
+        return Base64.getEncoder().encodeToString(block);
+    }
+}
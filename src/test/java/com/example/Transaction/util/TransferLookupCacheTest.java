@@ -0,0 +1,77 @@
+package com.example.Transaction.util;
+
+import com.example.Transaction.dto.StoredTransfer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferLookupCacheTest {
+
+    @Test
+    void returnsCachedTransferAndCountsHitsAndMisses() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        TransferLookupCache cache = new TransferLookupCache(100, 60, 60, registry);
+        StoredTransfer transfer = transfer("TX-1");
+
+        assertThat(cache.get("TX-1")).isNull();
+        cache.put(transfer);
+        assertThat(cache.get("TX-1")).isSameAs(transfer);
+        cache.putNotFound("TX-2");
+        assertThat(cache.get("TX-2")).isSameAs(TransferLookupCache.NOT_FOUND);
+
+        assertThat(requests(registry, "hit")).isEqualTo(1);
+        assertThat(requests(registry, "negative_hit")).isEqualTo(1);
+        assertThat(requests(registry, "miss")).isEqualTo(1);
+        assertThat(registry.get("lookup.cache.size").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        TransferLookupCache cache = new TransferLookupCache(100, 60, 0, registry);
+
+        cache.putNotFound("TX-1");
+        assertThat(cache.get("TX-1")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(registry.get("lookup.cache.evictions").tag("cause", "expired").counter().count()).isEqualTo(1);
+
+        // Ghi sau khi đã cache "không có" thì thay bằng giao dịch
+        cache.putNotFound("TX-2");
+        cache.put(transfer("TX-2"));
+        assertThat(cache.get("TX-2").transactionId()).isEqualTo("TX-2");
+
+        // Lần đọc DB chạy song song với lần ghi không ghi đè giao dịch đã cache
+        cache.putNotFound("TX-2");
+        assertThat(cache.get("TX-2").transactionId()).isEqualTo("TX-2");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxSize() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        TransferLookupCache cache = new TransferLookupCache(160, 60, 60, registry);
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(transfer("TX-" + i));
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(160);
+        assertThat(cache.get("TX-0")).isNull();
+        assertThat(cache.get("TX-9999")).isNotNull();
+        assertThat(registry.get("lookup.cache.evictions").tag("cause", "size").counter().count())
+                .isEqualTo(10_000 - cache.size());
+    }
+
+    private static double requests(MeterRegistry registry, String result) {
+        return registry.get("lookup.cache.requests").tag("result", result).counter().count();
+    }
+
+    private static StoredTransfer transfer(String transactionId) {
+        return new StoredTransfer(transactionId, "AQEAAAAAAAAAAAAAAAA=", "AQEAAAAAAAAAAAAAAAB=",
+                new BigDecimal("10.00"), LocalDateTime.of(2024, 1, 1, 0, 0));
+    }
+}